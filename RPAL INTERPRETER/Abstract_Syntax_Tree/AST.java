@@ -2,7 +2,26 @@ package Abstract_Syntax_Tree;
 
 import Cse_Machine.Beta_Condition_Eval;
 import Cse_Machine.DeltaControlStructure;
+import Cse_Machine.GammaSite;
+import Cse_Machine.Literal;
+import Cse_Machine.ParallelTuple;
+import Cse_Machine.PrimitiveFunction;
+import Cse_Machine.RecursiveBinding;
+import Cse_Machine.SaturatedCall;
+import Cse_Machine.SelfTailCall;
+import Cse_Machine.ShortCircuit;
+import Cse_Machine.TupleArgumentCall;
+import Cse_Machine.VerifiedOperation;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.Stack;
 
 public class AST {
@@ -12,6 +31,17 @@ public class AST {
     private DeltaControlStructure Cur_Delta;
     private DeltaControlStructure Root_Delta;
     private int Delta_Index;
+    private Map<ASTNode, PrimitiveFunction> builtinReferences;
+    private Map<ASTNode, ASTNode[]> selfTailCalls;
+    private Map<ASTNode, DeltaControlStructure> deltaOfLambda;
+    private boolean shortCircuitEvaluation;
+    private boolean memoization;
+    private Set<ASTNode> memoizableFunctions;
+    private Set<ASTNode> shortCircuits;
+    private boolean parallelEvaluation;
+    private Set<ASTNode> forkableComponents;
+    private Set<ASTNode> verifiedOperations;
+    private List<String> typeWarnings; // null until worked out
 
     public AST(ASTNode node) {
         this.root = node;
@@ -54,9 +84,42 @@ public class AST {
     // standardizing the tree
     public void Standardize() {
         Standardize(root);
+        numberLambdas();
         Standardized = true;
     }
 
+    /**
+     * Stores in each lambda node the index its delta had before the tree was optimized. A closure prints that
+     * number, so inlining or removing other lambdas does not change what a program prints. Deltas were numbered
+     * in the order createDeltas() met them: breadth first over the bodies, each body in pre-order except that a
+     * conditional's arms come before its condition.
+     */
+    private void numberLambdas() {
+        ArrayDeque<ASTNode> bodies = new ArrayDeque<ASTNode>();
+        bodies.add(root);
+        int number = 1; //delta 0 is the program itself
+        while (!bodies.isEmpty())
+            number = numberLambdas(bodies.pop(), bodies, number);
+    }
+
+    private int numberLambdas(ASTNode node, ArrayDeque<ASTNode> bodies, int number) {
+        if (node.getTypeOfASTNode() == ASTNodeType.LAMBDA) {
+            node.setValueOfASTNode(Integer.toString(number));
+            bodies.add(node.getChildOfASTNode().getSiblingOfASTNode());
+            return number + 1;
+        }
+        if (node.getTypeOfASTNode() == ASTNodeType.CONDITIONAL) {
+            ASTNode conditionNode = node.getChildOfASTNode();
+            ASTNode thenNode = conditionNode.getSiblingOfASTNode();
+            number = numberLambdas(thenNode, bodies, number);
+            number = numberLambdas(thenNode.getSiblingOfASTNode(), bodies, number);
+            return numberLambdas(conditionNode, bodies, number);
+        }
+        for (ASTNode child = node.getChildOfASTNode(); child != null; child = child.getSiblingOfASTNode())
+            number = numberLambdas(child, bodies, number);
+        return number;
+    }
+
     private void Standardize(ASTNode node) {
         //standardizing the children first
         if (node.getChildOfASTNode() != null) {
@@ -178,6 +241,99 @@ public class AST {
         }
     }
 
+    /**
+     * Writes the standardized tree in a compact pre-order form that {@link #readStandardizedTree} can load
+     * without going through the scanner, parser or standardizer again.
+     *
+     * @param out stream to write the tree to
+     */
+    public void writeStandardizedTree(DataOutputStream out) throws IOException {
+        if (!Standardized)
+            throw new RuntimeException("AST has NOT been standardized!");
+        writeNode(root, out);
+    }
+
+    private void writeNode(ASTNode node, DataOutputStream out) throws IOException {
+        out.writeByte(node.getTypeOfASTNode().ordinal());
+        out.writeBoolean(node.getValueOfASTNode() != null);
+        if (node.getValueOfASTNode() != null)
+            out.writeUTF(node.getValueOfASTNode());
+        out.writeInt(node.getLineNumberOfSourceFile());
+
+        int numChildren = 0;
+        for (ASTNode child = node.getChildOfASTNode(); child != null; child = child.getSiblingOfASTNode())
+            numChildren++;
+        out.writeInt(numChildren);
+        for (ASTNode child = node.getChildOfASTNode(); child != null; child = child.getSiblingOfASTNode())
+            writeNode(child, out);
+    }
+
+    /**
+     * Loads a tree written by {@link #writeStandardizedTree}. The result is already standardized.
+     *
+     * @param in stream to read the tree from
+     * @return the standardized AST
+     */
+    public static AST readStandardizedTree(DataInputStream in) throws IOException {
+        return ofStandardizedTree(readNode(in));
+    }
+
+    static AST ofStandardizedTree(ASTNode root) {
+        AST ast = new AST(root);
+        ast.Standardized = true;
+        return ast;
+    }
+
+    private static ASTNode readNode(DataInputStream in) throws IOException {
+        ASTNode node = new ASTNode();
+        node.setTypeOfASTNode(ASTNodeType.values()[in.readUnsignedByte()]);
+        if (in.readBoolean())
+            node.setValueOfASTNode(in.readUTF());
+        node.setLineNumberOfSourceFile(in.readInt());
+
+        int numChildren = in.readInt();
+        ASTNode previousChild = null;
+        for (int i = 0; i < numChildren; i++) {
+            ASTNode child = readNode(in);
+            if (previousChild == null)
+                node.setChildOfASTNode(child);
+            else
+                previousChild.setSiblingOfASTNode(child);
+            previousChild = child;
+        }
+        return node;
+    }
+
+    /**
+     * Simplifies the standardized tree before delta structures are built from it.
+     */
+    public void optimize() {
+        if (!Standardized)
+            throw new RuntimeException("AST has NOT been standardized!");
+        //warnings are about the program as written: the inliner's copies of a function would each be reported
+        TypeInference typeInference = new TypeInference(new BuiltinResolver().resolve(root), false);
+        typeInference.infer(root);
+        typeWarnings = typeInference.getWarnings();
+        new DeadBindingEliminator().eliminate(root);
+        new LambdaInliner().inline(root);
+        //inlining leaves behind definitions whose last use it substituted away
+        new DeadBindingEliminator().eliminate(root);
+    }
+
+    /**
+     * Replace the closed subexpressions of the standardized tree that cannot print by their values, computed now
+     * with the CSE machine. The given number of steps is shared by the whole pass. An expression that fails, does
+     * not finish within the steps left, builds too large a value or has a function for its value is left as it
+     * is, so this always terminates and never changes what the program does.
+     */
+    public void partiallyEvaluate(long fuel) {
+        if (!Standardized)
+            throw new RuntimeException("AST has NOT been standardized!");
+        new PartialEvaluator(fuel).evaluate(root);
+        //the definitions the folded expressions used are often referenced nowhere else now
+        new DeadBindingEliminator().eliminate(root);
+    }
+
     private void populateCommaAndTauNode(ASTNode equalNode, ASTNode commaNode, ASTNode tauNode) {
         if (equalNode.getTypeOfASTNode() != ASTNodeType.EQUAL)
             throw new RuntimeException("SIMULTDEF: one of the children is not EQUAL"); //safety
@@ -227,6 +383,17 @@ public class AST {
     public DeltaControlStructure createDeltas() {
         pending_Delta_Body_Queue = new ArrayDeque<PendingDeltaBody>();
         Delta_Index = 0;
+        builtinReferences = new BuiltinResolver().resolve(root);
+        selfTailCalls = new SelfTailCallFinder().find(root);
+        TypeInference typeInference = new TypeInference(builtinReferences, shortCircuitEvaluation);
+        verifiedOperations = typeInference.infer(root);
+        if (typeWarnings == null) //a tree loaded from a jar, which was optimized when the jar was built
+            typeWarnings = typeInference.getWarnings();
+        memoizableFunctions = memoization ? new MemoCandidateFinder().find(root) : Set.of();
+        shortCircuits = shortCircuitEvaluation ?
+                new ShortCircuitAnalyzer(builtinReferences, typeInference.getIdentifierTypes()).analyze(root) : Set.of();
+        forkableComponents = parallelEvaluation ? new ParallelTupleAnalyzer(builtinReferences).analyze(root) : Set.of();
+        deltaOfLambda = new IdentityHashMap<ASTNode, DeltaControlStructure>();
         Cur_Delta = createDelta(root);
         processPendingDeltaStack();
         return Root_Delta;
@@ -240,7 +407,7 @@ public class AST {
         pending_Delta_Body_Queue.add(pendingDelta);
 
         DeltaControlStructure d = new DeltaControlStructure();
-        d.setBody(pendingDelta.body);
+        pendingDelta.delta = d;
         d.setIndex(Delta_Index++);
         Cur_Delta = d;
 
@@ -251,9 +418,28 @@ public class AST {
     }
 
     private void processPendingDeltaStack() {
+        List<DeltaControlStructure> built = new ArrayList<DeltaControlStructure>();
         while (!pending_Delta_Body_Queue.isEmpty()) {
             PendingDeltaBody pendingDeltaBody = pending_Delta_Body_Queue.pop();
             buildDeltaBody(pendingDeltaBody.startNode, pendingDeltaBody.body);
+            //the body is compiled once here; the CSE machine only ever copies this array onto its control stack
+            pendingDeltaBody.delta.setBody(pendingDeltaBody.body.toArray(new ASTNode[0]));
+            built.add(pendingDeltaBody.delta);
+        }
+
+        //arity analysis: a delta whose body is just another delta returns it without doing anything else. A
+        //delta's body is built after the delta that contains it, so walking backwards sees the inner ones first
+        for (int i = built.size() - 1; i >= 0; i--) {
+            DeltaControlStructure delta = built.get(i);
+            ASTNode[] deltaBody = delta.getBody();
+            if (deltaBody.length == 1 && deltaBody[0] instanceof DeltaControlStructure) {
+                DeltaControlStructure[] innerChain = ((DeltaControlStructure) deltaBody[0]).getCurriedChain();
+                DeltaControlStructure[] chain = new DeltaControlStructure[innerChain.length + 1];
+                chain[0] = delta;
+                System.arraycopy(innerChain, 0, chain, 1, innerChain.length);
+                delta.setCurriedChain(chain);
+            } else
+                delta.setCurriedChain(new DeltaControlStructure[]{delta});
         }
     }
 
@@ -269,6 +455,10 @@ public class AST {
                 }
             } else
                 d.addBoundVars(node.getChildOfASTNode().getValueOfASTNode());
+            //a lambda the optimizer made has no number of its own
+            d.setNumber(node.getValueOfASTNode() != null ? Integer.parseInt(node.getValueOfASTNode()) : d.getIndex());
+            deltaOfLambda.put(node, d);
+            d.setMemoizable(memoizableFunctions.contains(node));
             body.push(d); //add this new delta to the existing delta's body
             return;
         } else if (node.getTypeOfASTNode() == ASTNodeType.CONDITIONAL) {
@@ -280,9 +470,14 @@ public class AST {
 
             //Add a Beta_Condition_Eval node.
             Beta_Condition_Eval betaNode = new Beta_Condition_Eval();
+            betaNode.setLineNumberOfSourceFile(node.getLineNumberOfSourceFile());
 
-            buildDeltaBody(thenNode, betaNode.getThenBody());
-            buildDeltaBody(elseNode, betaNode.getElseBody());
+            Stack<ASTNode> thenBody = new Stack<ASTNode>();
+            Stack<ASTNode> elseBody = new Stack<ASTNode>();
+            buildDeltaBody(thenNode, thenBody);
+            buildDeltaBody(elseNode, elseBody);
+            betaNode.setThenBody(thenBody.toArray(new ASTNode[0]));
+            betaNode.setElseBody(elseBody.toArray(new ASTNode[0]));
 
             body.push(betaNode);
 
@@ -291,8 +486,54 @@ public class AST {
             return;
         }
 
+        if (isConstant(node)) { //constants are turned into their runtime values once, here
+            body.push(new Literal(node));
+            return;
+        }
+        if (builtinReferences.containsKey(node)) { //so is every reference to a predefined function
+            body.push(new Literal(node, builtinReferences.get(node)));
+            return;
+        }
+
+        if (selfTailCalls.containsKey(node)) {
+            buildSelfTailCall(node, body);
+            return;
+        }
+
+        if (node.getTypeOfASTNode() == ASTNodeType.GAMMA &&
+                node.getChildOfASTNode().getTypeOfASTNode() == ASTNodeType.YSTAR &&
+                node.getChildOfASTNode().getSiblingOfASTNode().getTypeOfASTNode() == ASTNodeType.LAMBDA) {
+            //a 'rec' definition: build the eta and its letrec cell in one step
+            Stack<ASTNode> lambdaBody = new Stack<ASTNode>();
+            buildDeltaBody(node.getChildOfASTNode().getSiblingOfASTNode(), lambdaBody);
+            body.push(new RecursiveBinding(node, (DeltaControlStructure) lambdaBody.pop()));
+            return;
+        }
+
+        if (shortCircuits.contains(node)) {
+            buildShortCircuit(node, body);
+            return;
+        }
+        if (isParallelTuple(node)) {
+            buildParallelTuple(node, body);
+            return;
+        }
+        if (isTupleArgumentCall(node)) {
+            buildTupleArgumentCall(node, body);
+            return;
+        }
+        if (isMultipleArgumentCall(node)) {
+            buildSaturatedCall(node, body);
+            return;
+        }
+
         //Pre oder walk
-        body.push(node);
+        if (node.getTypeOfASTNode() == ASTNodeType.GAMMA)
+            body.push(new GammaSite(node)); //each application gets a site of its own for the inline cache
+        else if (verifiedOperations.contains(node))
+            body.push(new VerifiedOperation(node));
+        else
+            body.push(node);
         ASTNode childNode = node.getChildOfASTNode();
         while (childNode != null) {
             buildDeltaBody(childNode, body);
@@ -300,6 +541,196 @@ public class AST {
         }
     }
 
+    // 'f a1 ... an' becomes [LOOP, a1, ..., an]: the arguments are evaluated right to left as in the gammas it
+    // replaces, and the loop node finds a1 on top of the stack
+    private void buildSelfTailCall(ASTNode gammaNode, Stack<ASTNode> body) {
+        ASTNode[] lambdas = selfTailCalls.get(gammaNode);
+        DeltaControlStructure[] deltas = new DeltaControlStructure[lambdas.length];
+        for (int i = 0; i < lambdas.length; i++)
+            deltas[i] = deltaOfLambda.get(lambdas[i]); //the enclosing lambdas were all turned into deltas already
+        ASTNode[] arguments = argumentsOf(gammaNode, lambdas.length);
+        String name = functionOf(gammaNode).getValueOfASTNode();
+
+        //'f (e1, ..., en)' for 'rec f (x1, ..., xn)': the elements go straight into the parameters
+        if (deltas.length == 1 && arguments[0].getTypeOfASTNode() == ASTNodeType.TAU &&
+                deltas[0].getBoundVars().size() > 1 &&
+                deltas[0].getBoundVars().size() == StandardizedTree.countChildren(arguments[0])) {
+            body.push(new SelfTailCall(gammaNode, name, deltas, true));
+            for (ASTNode element = arguments[0].getChildOfASTNode(); element != null; element = element.getSiblingOfASTNode())
+                buildDeltaBody(element, body);
+            return;
+        }
+
+        body.push(new SelfTailCall(gammaNode, name, deltas, false));
+        for (ASTNode argument : arguments)
+            buildDeltaBody(argument, body);
+    }
+
+    // An application of a named function to two or more arguments. Predefined functions keep their gammas:
+    // Conc relies on finding its second gamma on the control stack
+    private boolean isMultipleArgumentCall(ASTNode node) {
+        if (node.getTypeOfASTNode() != ASTNodeType.GAMMA ||
+                node.getChildOfASTNode().getTypeOfASTNode() != ASTNodeType.GAMMA)
+            return false;
+        ASTNode rator = functionOf(node);
+        return rator.getTypeOfASTNode() == ASTNodeType.IDENTIFIER && !builtinReferences.containsKey(rator);
+    }
+
+    // 'f a1 ... an' becomes [CALL, f, a1, ..., an], which evaluates an, ..., a1 and f in the same order as the
+    // gammas it replaces. The gammas are kept on the call for when f cannot take all n arguments at once
+    private void buildSaturatedCall(ASTNode gammaNode, Stack<ASTNode> body) {
+        int arity = 0;
+        for (ASTNode application = gammaNode; application.getTypeOfASTNode() == ASTNodeType.GAMMA;
+             application = application.getChildOfASTNode())
+            arity++;
+        GammaSite[] sites = new GammaSite[arity];
+        ASTNode application = gammaNode;
+        for (int i = arity - 1; i >= 0; i--) {
+            sites[i] = new GammaSite(application);
+            application = application.getChildOfASTNode();
+        }
+        body.push(new SaturatedCall(gammaNode, sites));
+
+        buildDeltaBody(functionOf(gammaNode), body);
+        for (ASTNode argument : argumentsOf(gammaNode, arity))
+            buildDeltaBody(argument, body);
+    }
+
+    // 'A or B' becomes [SHORT_CIRCUIT, A] with B compiled separately, so A is evaluated first and B only if needed
+    private void buildShortCircuit(ASTNode operatorNode, Stack<ASTNode> body) {
+        ASTNode left = operatorNode.getChildOfASTNode();
+        Stack<ASTNode> rightBody = new Stack<ASTNode>();
+        buildDeltaBody(left.getSiblingOfASTNode(), rightBody);
+        body.push(new ShortCircuit(operatorNode, rightBody.toArray(new ASTNode[0])));
+        buildDeltaBody(left, body);
+    }
+
+    // 'f (e1, ..., en)' or 'let x1, ..., xn = e1, ..., en', for a named function that is not a builtin
+    private boolean isTupleArgumentCall(ASTNode node) {
+        if (node.getTypeOfASTNode() != ASTNodeType.GAMMA)
+            return false;
+        ASTNode rator = node.getChildOfASTNode();
+        ASTNode rand = rator.getSiblingOfASTNode();
+        if (rand.getTypeOfASTNode() != ASTNodeType.TAU || StandardizedTree.countChildren(rand) < 2 ||
+                isParallelTuple(rand)) //forking its elements is worth more than passing them straight in
+            return false;
+        return rator.getTypeOfASTNode() == ASTNodeType.LAMBDA ||
+                (rator.getTypeOfASTNode() == ASTNodeType.IDENTIFIER && !builtinReferences.containsKey(rator));
+    }
+
+    // 'f (e1, ..., en)' becomes [CALL_TUPLE, f, e1, ..., en]: the elements are evaluated right to left, as for
+    // the tau, and then f, as for the gamma
+    private void buildTupleArgumentCall(ASTNode gammaNode, Stack<ASTNode> body) {
+        ASTNode rator = gammaNode.getChildOfASTNode();
+        ASTNode tau = rator.getSiblingOfASTNode();
+        body.push(new TupleArgumentCall(gammaNode, new GammaSite(gammaNode), StandardizedTree.countChildren(tau)));
+        buildDeltaBody(rator, body);
+        for (ASTNode element = tau.getChildOfASTNode(); element != null; element = element.getSiblingOfASTNode())
+            buildDeltaBody(element, body);
+    }
+
+    private boolean isParallelTuple(ASTNode node) {
+        if (node.getTypeOfASTNode() != ASTNodeType.TAU)
+            return false;
+        for (ASTNode child = node.getChildOfASTNode(); child != null; child = child.getSiblingOfASTNode())
+            if (forkableComponents.contains(child))
+                return true;
+        return false;
+    }
+
+    // A tau with components to fork becomes one PARALLEL_TAU holding every component compiled on its own. The
+    // CSE machine lays the components it does not fork out on the control stack, as the walk would have
+    private void buildParallelTuple(ASTNode tau, Stack<ASTNode> body) {
+        int width = StandardizedTree.countChildren(tau);
+        ASTNode[][] componentBodies = new ASTNode[width][];
+        boolean[] forkable = new boolean[width];
+        ASTNode component = tau.getChildOfASTNode();
+        for (int i = 0; i < width; i++, component = component.getSiblingOfASTNode()) {
+            Stack<ASTNode> componentBody = new Stack<ASTNode>();
+            buildDeltaBody(component, componentBody);
+            componentBodies[i] = componentBody.toArray(new ASTNode[0]);
+            forkable[i] = forkableComponents.contains(component);
+        }
+        body.push(new ParallelTuple(tau, componentBodies, forkable));
+    }
+
+    // The rator of the innermost of a nest of gammas
+    private ASTNode functionOf(ASTNode gammaNode) {
+        ASTNode rator = gammaNode;
+        while (rator.getTypeOfASTNode() == ASTNodeType.GAMMA)
+            rator = rator.getChildOfASTNode();
+        return rator;
+    }
+
+    // The rands of the n nested gammas of 'f a1 ... an', a1 first
+    private ASTNode[] argumentsOf(ASTNode gammaNode, int n) {
+        ASTNode[] arguments = new ASTNode[n];
+        ASTNode application = gammaNode;
+        for (int i = n - 1; i >= 0; i--) {
+            arguments[i] = application.getChildOfASTNode().getSiblingOfASTNode();
+            application = application.getChildOfASTNode();
+        }
+        return arguments;
+    }
+
+    private boolean isConstant(ASTNode node) {
+        return switch (node.getTypeOfASTNode()) {
+            case INTEGER, STRING, TRUE, FALSE, NIL, DUMMY, YSTAR -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * @return the number of delta structures built by the last call to {@link #createDeltas()}
+     */
+    public int getNumberOfDeltas() {
+        return Delta_Index;
+    }
+
+    /**
+     * @return the operations found to fail whenever they are evaluated, one message with its source line number
+     * each, as {@link #optimize()} or else {@link #createDeltas()} found them
+     */
+    public List<String> getTypeWarnings() {
+        return typeWarnings;
+    }
+
+    /**
+     * Let {@link #createDeltas()} compile an 'or' or '&amp;' whose right operand is a side-effect free truth value
+     * so that the right operand is skipped when the left one decides the result. Off by default.
+     */
+    public void setShortCircuitEvaluation(boolean enabled) {
+        shortCircuitEvaluation = enabled;
+    }
+
+    public boolean isShortCircuitEvaluationEnabled() {
+        return shortCircuitEvaluation;
+    }
+
+    /**
+     * Let {@link #createDeltas()} mark the 'rec' functions that can never reach Print, whose results the CSE
+     * machine may then cache. Off by default.
+     */
+    public void setMemoization(boolean enabled) {
+        memoization = enabled;
+    }
+
+    public boolean isMemoizationEnabled() {
+        return memoization;
+    }
+
+    /**
+     * Let {@link #createDeltas()} mark the tuple components that apply functions, which the CSE machine then
+     * evaluates as tasks on the common ForkJoin pool when it is worth it. Off by default.
+     */
+    public void setParallelEvaluation(boolean enabled) {
+        parallelEvaluation = enabled;
+    }
+
+    public boolean isParallelEvaluationEnabled() {
+        return parallelEvaluation;
+    }
+
     public boolean isASTStandardized() {
         return Standardized;
     }
@@ -307,6 +738,7 @@ public class AST {
     private static class PendingDeltaBody {
         Stack<ASTNode> body;
         ASTNode startNode;
+        DeltaControlStructure delta;
     }
 }
 
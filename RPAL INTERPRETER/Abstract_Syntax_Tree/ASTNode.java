@@ -1,7 +1,5 @@
 package Abstract_Syntax_Tree;
 
-import Cse_Machine.Node_Duplication;
-
 public class ASTNode {
     private ASTNodeType typeOfASTNode;
     private String valueOfASTNode;
@@ -42,10 +40,6 @@ public class ASTNode {
         this.valueOfASTNode = valueOfASTNode;
     }
 
-    public ASTNode acceptASTNode(Node_Duplication nodeCopier) {
-        return nodeCopier.takecopy(this);
-    }
-
     public int getLineNumberOfSourceFile() {
         return lineNumberOfSourceFile;
     }
@@ -60,8 +60,18 @@ public enum ASTNodeType {
     // programee evolution
     BETA(""),
     DELTA(""),
-    ETA(""),
-    TUPLE("");
+    PRIMITIVE(""),
+    ENVIRONMENT(""),
+    LOOP(""),
+    CALL(""),
+    CALL_TUPLE(""),
+    SHORT_CIRCUIT(""),
+    SWAP(""),
+    VERIFIED(""),
+    MEMO_STORE(""),
+    RECBIND(""),
+    PARALLEL_TAU(""),
+    JOIN("");
 
     private final String printNameOfASTNode; //used for printing AST representation
 
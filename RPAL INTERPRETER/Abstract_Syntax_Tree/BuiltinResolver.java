@@ -0,0 +1,42 @@
+package Abstract_Syntax_Tree;
+
+import Cse_Machine.PrimitiveFunction;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Finds the identifiers in the standardized tree that refer to a predefined function. An identifier does when no
+ * enclosing lambda binds its name and the name is one of the predefined functions, since the primitive
+ * environment binds nothing else.
+ */
+class BuiltinResolver {
+    private final StandardizedTree.Scope scope = new StandardizedTree.Scope();
+    private final Map<ASTNode, PrimitiveFunction> references = new IdentityHashMap<ASTNode, PrimitiveFunction>();
+
+    /**
+     * @return the identifier nodes that refer to a predefined function, each mapped to that function
+     */
+    Map<ASTNode, PrimitiveFunction> resolve(ASTNode root) {
+        resolveIn(root);
+        return references;
+    }
+
+    private void resolveIn(ASTNode node) {
+        if (node.getTypeOfASTNode() == ASTNodeType.LAMBDA) {
+            ASTNode boundVar = node.getChildOfASTNode();
+            scope.enter(boundVar);
+            resolveIn(boundVar.getSiblingOfASTNode());
+            scope.leave(boundVar);
+            return;
+        }
+        if (node.getTypeOfASTNode() == ASTNodeType.IDENTIFIER && !scope.isBound(node.getValueOfASTNode())) {
+            PrimitiveFunction builtin = PrimitiveFunction.forName(node.getValueOfASTNode());
+            if (builtin != null)
+                references.put(node, builtin);
+            return;
+        }
+        for (ASTNode child = node.getChildOfASTNode(); child != null; child = child.getSiblingOfASTNode())
+            resolveIn(child);
+    }
+}
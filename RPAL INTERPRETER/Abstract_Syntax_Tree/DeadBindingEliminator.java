@@ -0,0 +1,126 @@
+package Abstract_Syntax_Tree;
+
+import java.util.Set;
+
+/**
+ * Drops definitions that the rest of the program never references, before any delta structure is built for them.
+ * <p>
+ * A 'let' or 'where' binding, 'gamma (lambda x. B) E', is replaced by B when x is not free in B. For a simultaneous
+ * definition, 'gamma (lambda (x1, ..., xn). B) (tau E1 ... En)', the unused components are removed from both the
+ * comma and the tau. Either way the dropped expression must be pure: evaluating it has no effect, cannot fail and
+ * terminates, so removing it cannot change what the program prints.
+ * </p>
+ */
+class DeadBindingEliminator {
+    private final StandardizedTree.Scope scope = new StandardizedTree.Scope();
+
+    void eliminate(ASTNode root) {
+        eliminateIn(root);
+    }
+
+    // Post-order, so a helper that is only referenced by another dead helper is seen as unreferenced too
+    private void eliminateIn(ASTNode node) {
+        if (node.getTypeOfASTNode() == ASTNodeType.LAMBDA) {
+            ASTNode boundVar = node.getChildOfASTNode();
+            scope.enter(boundVar);
+            eliminateIn(boundVar.getSiblingOfASTNode());
+            scope.leave(boundVar);
+        } else {
+            for (ASTNode child = node.getChildOfASTNode(); child != null; child = child.getSiblingOfASTNode())
+                eliminateIn(child);
+        }
+
+        if (node.getTypeOfASTNode() == ASTNodeType.GAMMA &&
+                node.getChildOfASTNode().getTypeOfASTNode() == ASTNodeType.LAMBDA)
+            eliminateBinding(node);
+    }
+
+    private void eliminateBinding(ASTNode gammaNode) {
+        ASTNode lambdaNode = gammaNode.getChildOfASTNode();
+        ASTNode boundVar = lambdaNode.getChildOfASTNode();
+        ASTNode body = boundVar.getSiblingOfASTNode();
+        ASTNode rand = lambdaNode.getSiblingOfASTNode();
+        Set<String> used = StandardizedTree.freeIdentifiers(body);
+
+        if (boundVar.getTypeOfASTNode() == ASTNodeType.IDENTIFIER) {
+            if (!used.contains(boundVar.getValueOfASTNode()) && isPure(rand))
+                StandardizedTree.replaceNode(gammaNode, body);
+            return;
+        }
+        if (boundVar.getTypeOfASTNode() != ASTNodeType.COMMA || rand.getTypeOfASTNode() != ASTNodeType.TAU ||
+                StandardizedTree.countChildren(boundVar) != StandardizedTree.countChildren(rand))
+            return;
+
+        //walk the comma and the tau side by side, unlinking the unused pairs
+        ASTNode previousVar = null, previousElement = null;
+        ASTNode var = boundVar.getChildOfASTNode();
+        ASTNode element = rand.getChildOfASTNode();
+        while (var != null) {
+            ASTNode nextVar = var.getSiblingOfASTNode();
+            ASTNode nextElement = element.getSiblingOfASTNode();
+            if (!used.contains(var.getValueOfASTNode()) && isPure(element)) {
+                if (previousVar == null) {
+                    boundVar.setChildOfASTNode(nextVar);
+                    rand.setChildOfASTNode(nextElement);
+                } else {
+                    previousVar.setSiblingOfASTNode(nextVar);
+                    previousElement.setSiblingOfASTNode(nextElement);
+                }
+            } else {
+                previousVar = var;
+                previousElement = element;
+            }
+            var = nextVar;
+            element = nextElement;
+        }
+
+        if (boundVar.getChildOfASTNode() == null)
+            StandardizedTree.replaceNode(gammaNode, body);
+        else if (boundVar.getChildOfASTNode().getSiblingOfASTNode() == null) {
+            //a single name left: bind it directly rather than through a one-element tuple
+            ASTNode onlyVar = boundVar.getChildOfASTNode();
+            ASTNode onlyElement = rand.getChildOfASTNode();
+            onlyVar.setSiblingOfASTNode(body);
+            lambdaNode.setChildOfASTNode(onlyVar);
+            StandardizedTree.replaceNode(rand, onlyElement);
+        }
+    }
+
+    private boolean isPure(ASTNode node) {
+        switch (node.getTypeOfASTNode()) {
+            case INTEGER, STRING, TRUE, FALSE, NIL, DUMMY, LAMBDA:
+                return true;
+            case IDENTIFIER:
+                //an unbound name is either a builtin or an error that must still be raised
+                return scope.isBound(node.getValueOfASTNode());
+            case TAU:
+                for (ASTNode child = node.getChildOfASTNode(); child != null; child = child.getSiblingOfASTNode())
+                    if (!isPure(child))
+                        return false;
+                return true;
+            case GAMMA:
+                ASTNode rator = node.getChildOfASTNode();
+                ASTNode rand = rator.getSiblingOfASTNode();
+                //'rec' definitions: Y* applied to a lambda only builds the fixed point
+                if (rator.getTypeOfASTNode() == ASTNodeType.YSTAR)
+                    return rand.getTypeOfASTNode() == ASTNodeType.LAMBDA;
+                //a nested definition, e.g. the one 'within' produces
+                if (rator.getTypeOfASTNode() == ASTNodeType.LAMBDA) {
+                    ASTNode boundVar = rator.getChildOfASTNode();
+                    if (!isPure(rand))
+                        return false;
+                    //binding a comma pattern fails unless the value is a tuple of the same width
+                    if (boundVar.getTypeOfASTNode() == ASTNodeType.COMMA && (rand.getTypeOfASTNode() != ASTNodeType.TAU ||
+                            StandardizedTree.countChildren(boundVar) != StandardizedTree.countChildren(rand)))
+                        return false;
+                    scope.enter(boundVar);
+                    boolean pureBody = isPure(boundVar.getSiblingOfASTNode());
+                    scope.leave(boundVar);
+                    return pureBody;
+                }
+                return false;
+            default:
+                return false;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package Abstract_Syntax_Tree;
+
+import java.util.Set;
+
+/**
+ * Beta-reduces 'gamma (lambda x. B) E' redexes in the standardized tree, which is what every 'let' and 'where'
+ * turns into. E is substituted for x in B and the redex is replaced by B, so the CSE machine no longer builds an
+ * Environment and enters a new delta just to bind one name.
+ * <p>
+ * Only values whose evaluation has no effect and cannot fail are moved: literals, identifiers that are bound in
+ * scope, and lambdas (a lambda is inlined when it is used once outside any other lambda, or when it is small).
+ * Applications, and therefore every Print, stay where they are, so side effects keep their order.
+ * </p>
+ */
+class LambdaInliner {
+    // Lambdas with at most this many nodes are copied to every use site
+    private static final int SMALL_LAMBDA_SIZE = 16;
+    // Reducing one redex can expose another (a let-bound function applied to a literal); stop after this many passes
+    private static final int MAX_PASSES = 8;
+
+    private final StandardizedTree.Scope scope = new StandardizedTree.Scope();
+    private boolean changed;
+
+    void inline(ASTNode root) {
+        int passes = 0;
+        do {
+            changed = false;
+            inlineNode(root);
+        } while (changed && ++passes < MAX_PASSES);
+    }
+
+    // Post-order, so the body of a redex is already simplified when the redex itself is considered
+    private void inlineNode(ASTNode node) {
+        if (node.getTypeOfASTNode() == ASTNodeType.LAMBDA) {
+            ASTNode boundVar = node.getChildOfASTNode();
+            scope.enter(boundVar);
+            inlineNode(boundVar.getSiblingOfASTNode());
+            scope.leave(boundVar);
+        } else {
+            for (ASTNode child = node.getChildOfASTNode(); child != null; child = child.getSiblingOfASTNode())
+                inlineNode(child);
+        }
+
+        if (node.getTypeOfASTNode() == ASTNodeType.GAMMA &&
+                node.getChildOfASTNode().getTypeOfASTNode() == ASTNodeType.LAMBDA)
+            tryToReduce(node);
+    }
+
+    private void tryToReduce(ASTNode gammaNode) {
+        ASTNode lambdaNode = gammaNode.getChildOfASTNode();
+        ASTNode boundVar = lambdaNode.getChildOfASTNode();
+        ASTNode body = boundVar.getSiblingOfASTNode();
+        ASTNode rand = lambdaNode.getSiblingOfASTNode();
+
+        if (boundVar.getTypeOfASTNode() == ASTNodeType.IDENTIFIER) {
+            if (!canSubstitute(boundVar.getValueOfASTNode(), rand, body))
+                return;
+            substitute(body, boundVar.getValueOfASTNode(), rand);
+        } else if (boundVar.getTypeOfASTNode() == ASTNodeType.COMMA && rand.getTypeOfASTNode() == ASTNodeType.TAU &&
+                StandardizedTree.countChildren(boundVar) == StandardizedTree.countChildren(rand)) {
+            //'let (a, b) = (1, 2) in B': every component has to qualify, since the tuple is bound as a whole
+            ASTNode var = boundVar.getChildOfASTNode();
+            for (ASTNode element = rand.getChildOfASTNode(); element != null; element = element.getSiblingOfASTNode()) {
+                if (!canSubstitute(var.getValueOfASTNode(), element, body) || isCapturedBy(element, boundVar))
+                    return;
+                var = var.getSiblingOfASTNode();
+            }
+            var = boundVar.getChildOfASTNode();
+            for (ASTNode element = rand.getChildOfASTNode(); element != null; element = element.getSiblingOfASTNode()) {
+                substitute(body, var.getValueOfASTNode(), element);
+                var = var.getSiblingOfASTNode();
+            }
+        } else
+            return;
+
+        StandardizedTree.replaceNode(gammaNode, body);
+        changed = true;
+    }
+
+    private boolean canSubstitute(String name, ASTNode value, ASTNode body) {
+        UseCounter uses = new UseCounter(name, StandardizedTree.freeIdentifiers(value));
+        uses.count(body, false);
+        if (uses.captured)
+            return false;
+
+        switch (value.getTypeOfASTNode()) {
+            case INTEGER, STRING, TRUE, FALSE, NIL, DUMMY:
+                return true;
+            case IDENTIFIER:
+                //an unbound name is either a builtin or an error that must still be raised where it is evaluated
+                return scope.isBound(value.getValueOfASTNode());
+            case LAMBDA:
+                return (uses.uses == 1 && !uses.usedInsideLambda) || StandardizedTree.size(value) <= SMALL_LAMBDA_SIZE;
+            default:
+                return false;
+        }
+    }
+
+    // In 'let (x, y) = (y, 1)' the value 'y' must not end up under the binder it names
+    private boolean isCapturedBy(ASTNode value, ASTNode commaNode) {
+        Set<String> free = StandardizedTree.freeIdentifiers(value);
+        for (ASTNode var = commaNode.getChildOfASTNode(); var != null; var = var.getSiblingOfASTNode())
+            if (free.contains(var.getValueOfASTNode()))
+                return true;
+        return false;
+    }
+
+    private void substitute(ASTNode node, String name, ASTNode value) {
+        if (node.getTypeOfASTNode() == ASTNodeType.IDENTIFIER && node.getValueOfASTNode().equals(name)) {
+            StandardizedTree.replaceNode(node, StandardizedTree.copyTree(value));
+            return;
+        }
+        if (node.getTypeOfASTNode() == ASTNodeType.LAMBDA) {
+            if (StandardizedTree.bindsName(node.getChildOfASTNode(), name)) //shadowed from here on
+                return;
+            substitute(node.getChildOfASTNode().getSiblingOfASTNode(), name, value);
+            return;
+        }
+        for (ASTNode child = node.getChildOfASTNode(); child != null; child = child.getSiblingOfASTNode())
+            substitute(child, name, value);
+    }
+
+    /**
+     * Counts the free uses of one name and notes whether any of them sits under a binder of one of the
+     * substituted value's free identifiers, where substituting would capture it.
+     */
+    private static class UseCounter {
+        private final String name;
+        private final Set<String> valueFreeIdentifiers;
+        private final StandardizedTree.Scope bindersOnPath = new StandardizedTree.Scope();
+        int uses;
+        boolean usedInsideLambda;
+        boolean captured;
+
+        UseCounter(String name, Set<String> valueFreeIdentifiers) {
+            this.name = name;
+            this.valueFreeIdentifiers = valueFreeIdentifiers;
+        }
+
+        void count(ASTNode node, boolean insideLambda) {
+            if (node.getTypeOfASTNode() == ASTNodeType.IDENTIFIER) {
+                if (node.getValueOfASTNode().equals(name)) {
+                    uses++;
+                    usedInsideLambda |= insideLambda;
+                    for (String free : valueFreeIdentifiers)
+                        captured |= bindersOnPath.isBound(free);
+                }
+                return;
+            }
+            if (node.getTypeOfASTNode() == ASTNodeType.LAMBDA) {
+                ASTNode boundVar = node.getChildOfASTNode();
+                if (StandardizedTree.bindsName(boundVar, name))
+                    return;
+                bindersOnPath.enter(boundVar);
+                count(boundVar.getSiblingOfASTNode(), true);
+                bindersOnPath.leave(boundVar);
+                return;
+            }
+            for (ASTNode child = node.getChildOfASTNode(); child != null; child = child.getSiblingOfASTNode())
+                count(child, insideLambda);
+        }
+    }
+}
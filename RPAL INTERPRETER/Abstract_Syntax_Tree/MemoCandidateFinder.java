@@ -0,0 +1,102 @@
+package Abstract_Syntax_Tree;
+
+import Cse_Machine.PrimitiveFunction;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Finds the 'rec' functions whose results may be cached.
+ * <p>
+ * Print is the only thing in RPAL with an effect, so a function can be memoized when applying it can never reach
+ * Print. That is checked from the names the function refers to: Print itself rules it out, the other predefined
+ * functions are fine, and a name defined with 'let', 'where' or 'rec' is fine when its definition is (a 'rec'
+ * function is assumed to be while its own definition is checked). A parameter of an enclosing lambda could be
+ * anything and rules the function out. The function's own arguments may also be functions that print; the CSE
+ * machine only uses the cache when none of them is a function.
+ * </p>
+ */
+class MemoCandidateFinder {
+    private final Map<String, Boolean> pureNames = new HashMap<String, Boolean>();
+    private final Set<ASTNode> candidates = Collections.newSetFromMap(new IdentityHashMap<ASTNode, Boolean>());
+
+    /**
+     * @return the lambdas 'lambda f. ...' that Y* is applied to for each 'rec' function that can be memoized
+     */
+    Set<ASTNode> find(ASTNode root) {
+        findIn(root);
+        return candidates;
+    }
+
+    private void findIn(ASTNode node) {
+        if (node.getTypeOfASTNode() == ASTNodeType.LAMBDA) {
+            ASTNode boundVar = node.getChildOfASTNode();
+            Map<String, Boolean> shadowed = bind(boundVar, false);
+            findIn(boundVar.getSiblingOfASTNode());
+            restore(shadowed);
+            return;
+        }
+        if (node.getTypeOfASTNode() == ASTNodeType.GAMMA) {
+            ASTNode rator = node.getChildOfASTNode();
+            ASTNode rand = rator.getSiblingOfASTNode();
+            if (rator.getTypeOfASTNode() == ASTNodeType.LAMBDA) { //a definition
+                findIn(rand);
+                ASTNode boundVar = rator.getChildOfASTNode();
+                Map<String, Boolean> shadowed = bind(boundVar, isPure(rand));
+                findIn(boundVar.getSiblingOfASTNode());
+                restore(shadowed);
+                return;
+            }
+            if (rator.getTypeOfASTNode() == ASTNodeType.YSTAR && rand.getTypeOfASTNode() == ASTNodeType.LAMBDA &&
+                    rand.getChildOfASTNode().getTypeOfASTNode() == ASTNodeType.IDENTIFIER) {
+                ASTNode boundVar = rand.getChildOfASTNode();
+                ASTNode function = boundVar.getSiblingOfASTNode();
+                Map<String, Boolean> shadowed = bind(boundVar, true);
+                boolean pure = isPure(function);
+                if (pure && function.getTypeOfASTNode() == ASTNodeType.LAMBDA)
+                    candidates.add(rand);
+                pureNames.put(boundVar.getValueOfASTNode(), pure);
+                findIn(function);
+                restore(shadowed);
+                return;
+            }
+        }
+        for (ASTNode child = node.getChildOfASTNode(); child != null; child = child.getSiblingOfASTNode())
+            findIn(child);
+    }
+
+    // True if evaluating the expression, and applying anything it evaluates to, can never reach Print
+    private boolean isPure(ASTNode node) {
+        for (String name : StandardizedTree.freeIdentifiers(node))
+            if (!pureNames.getOrDefault(name, false) && !isHarmlessBuiltin(name))
+                return false;
+        return true;
+    }
+
+    // A free name that no definition binds is a predefined function, or an error when it is evaluated
+    private boolean isHarmlessBuiltin(String name) {
+        PrimitiveFunction builtin = PrimitiveFunction.forName(name);
+        return !pureNames.containsKey(name) && builtin != null && builtin.getKind() != PrimitiveFunction.Kind.PRINT;
+    }
+
+    private Map<String, Boolean> bind(ASTNode boundVar, boolean pure) {
+        Map<String, Boolean> shadowed = new HashMap<String, Boolean>();
+        for (String name : StandardizedTree.namesBoundBy(boundVar)) {
+            shadowed.put(name, pureNames.get(name));
+            pureNames.put(name, pure);
+        }
+        return shadowed;
+    }
+
+    private void restore(Map<String, Boolean> shadowed) {
+        for (Map.Entry<String, Boolean> entry : shadowed.entrySet()) {
+            if (entry.getValue() == null)
+                pureNames.remove(entry.getKey());
+            else
+                pureNames.put(entry.getKey(), entry.getValue());
+        }
+    }
+}
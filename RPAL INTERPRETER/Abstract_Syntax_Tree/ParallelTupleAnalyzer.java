@@ -0,0 +1,90 @@
+package Abstract_Syntax_Tree;
+
+import Cse_Machine.PrimitiveFunction;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Finds the tuple components worth evaluating on another thread.
+ * <p>
+ * The estimate is static and coarse: a component is expensive when evaluating it may apply a function defined in
+ * the program, which may recurse, and cheap when it only applies operators and predefined functions, whose cost is
+ * bounded by the size of the expression. A tau needs two expensive components for forking to pay: the one
+ * evaluated first (the last one, as the CSE machine goes right to left) is left to the forking machine and the
+ * other expensive ones are forked.
+ * </p>
+ * <p>
+ * Components that may reach Print need no special treatment. Print only records the value shown when the program
+ * ends, so a forked component hands back the last value it printed and the CSE machine takes it when it joins
+ * the component, in evaluation order. An error in a forked component is reported at that point too.
+ * </p>
+ */
+class ParallelTupleAnalyzer {
+    private final Map<ASTNode, PrimitiveFunction> builtinReferences;
+    private final Set<ASTNode> forkable = Collections.newSetFromMap(new IdentityHashMap<ASTNode, Boolean>());
+
+    ParallelTupleAnalyzer(Map<ASTNode, PrimitiveFunction> builtinReferences) {
+        this.builtinReferences = builtinReferences;
+    }
+
+    /**
+     * @return the children of TAU nodes that should be forked
+     */
+    Set<ASTNode> analyze(ASTNode root) {
+        analyzeIn(root);
+        return forkable;
+    }
+
+    private void analyzeIn(ASTNode node) {
+        if (node.getTypeOfASTNode() == ASTNodeType.TAU) {
+            List<ASTNode> components = new ArrayList<ASTNode>();
+            for (ASTNode child = node.getChildOfASTNode(); child != null; child = child.getSiblingOfASTNode())
+                components.add(child);
+            boolean evaluatedFirst = true;
+            for (int i = components.size() - 1; i >= 0; i--) {
+                if (mayApplyFunction(components.get(i))) {
+                    if (!evaluatedFirst)
+                        forkable.add(components.get(i));
+                    evaluatedFirst = false;
+                }
+            }
+        }
+        for (ASTNode child = node.getChildOfASTNode(); child != null; child = child.getSiblingOfASTNode())
+            analyzeIn(child);
+    }
+
+    // True if evaluating the expression may apply a closure or a 'rec' function
+    private boolean mayApplyFunction(ASTNode node) {
+        ASTNode first = node.getChildOfASTNode();
+        switch (node.getTypeOfASTNode()) {
+            case LAMBDA: //only evaluated to a closure
+                return false;
+            case GAMMA:
+                if (first.getTypeOfASTNode() == ASTNodeType.LAMBDA) //a definition: its body is evaluated right away
+                    return mayApplyFunction(first.getChildOfASTNode().getSiblingOfASTNode()) ||
+                            mayApplyFunction(first.getSiblingOfASTNode());
+                if (!appliesBuiltin(node))
+                    return true;
+                break;
+            default:
+                break;
+        }
+        for (ASTNode child = first; child != null; child = child.getSiblingOfASTNode())
+            if (mayApplyFunction(child))
+                return true;
+        return false;
+    }
+
+    // 'B x' or 'B x y' for a predefined function B (Y* included), which returns without applying anything else
+    private boolean appliesBuiltin(ASTNode gammaNode) {
+        ASTNode rator = gammaNode.getChildOfASTNode();
+        if (rator.getTypeOfASTNode() == ASTNodeType.GAMMA)
+            rator = rator.getChildOfASTNode();
+        return rator.getTypeOfASTNode() == ASTNodeType.YSTAR || builtinReferences.containsKey(rator);
+    }
+}
@@ -0,0 +1,212 @@
+package Abstract_Syntax_Tree;
+
+import Cse_Machine.CSE_Machine;
+import Cse_Machine.DummyValue;
+import Cse_Machine.IntegerValue;
+import Cse_Machine.PrimitiveFunction;
+import Cse_Machine.RPALValue;
+import Cse_Machine.StringValue;
+import Cse_Machine.TruthValue;
+import Cse_Machine.Tuple;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Runs the closed parts of a program at compile time.
+ * <p>
+ * An expression is closed when every name it refers to is a predefined function other than Print, or is defined
+ * by an enclosing 'let', 'where' or 'rec' whose definition is itself closed; a parameter of an enclosing lambda
+ * makes it open. A closed expression is evaluated together with the definitions it needs, 'Sum_first_n 0' for
+ * example as 'let rec Sum_first_n n = ... in Sum_first_n 0', by a CSE machine allowed the steps left of the
+ * pass's fuel. When it finishes with an integer, a string, a truthvalue, nil, dummy or a tuple of these, the
+ * expression is replaced by that constant. Otherwise, because it failed, ran out of steps, built too large a
+ * value or produced a function, it is left alone and its subexpressions are tried instead. The outermost closed
+ * expressions are tried first.
+ * </p>
+ * <p>
+ * Every attempt, successful or not, spends its steps from the one budget, so the whole pass takes at most that
+ * many steps however many expressions it tries. Once the fuel is gone, the rest of the tree is left as it is.
+ * </p>
+ */
+class PartialEvaluator {
+    // A result bigger than this is left to be computed at run time rather than stored in the tree
+    private static final int MAX_RESULT_NODES = 10000;
+
+    private long fuel; // steps left for the rest of the pass
+    private final List<Binding> scope = new ArrayList<Binding>(); // outermost first
+
+    /**
+     * A name bound by an enclosing lambda: a definition when its value is known, a parameter otherwise.
+     */
+    private static final class Binding {
+        final ASTNode boundVar;
+        final ASTNode value; // null for a parameter
+
+        Binding(ASTNode boundVar, ASTNode value) {
+            this.boundVar = boundVar;
+            this.value = value;
+        }
+    }
+
+    PartialEvaluator(long fuel) {
+        this.fuel = fuel;
+    }
+
+    void evaluate(ASTNode root) {
+        evaluateIn(root);
+    }
+
+    private void evaluateIn(ASTNode node) {
+        if (fuel <= 0)
+            return;
+        if (isWorthEvaluating(node) && fold(node))
+            return;
+
+        if (node.getTypeOfASTNode() == ASTNodeType.LAMBDA) {
+            ASTNode boundVar = node.getChildOfASTNode();
+            scope.add(new Binding(boundVar, null));
+            evaluateIn(boundVar.getSiblingOfASTNode());
+            scope.remove(scope.size() - 1);
+            return;
+        }
+        if (node.getTypeOfASTNode() == ASTNodeType.GAMMA &&
+                node.getChildOfASTNode().getTypeOfASTNode() == ASTNodeType.LAMBDA) { //a definition
+            ASTNode lambda = node.getChildOfASTNode();
+            ASTNode boundVar = lambda.getChildOfASTNode();
+            ASTNode value = lambda.getSiblingOfASTNode();
+            evaluateIn(value);
+            scope.add(new Binding(boundVar, boundVar.getTypeOfASTNode() == ASTNodeType.IDENTIFIER ? value : null));
+            evaluateIn(boundVar.getSiblingOfASTNode());
+            scope.remove(scope.size() - 1);
+            return;
+        }
+        for (ASTNode child = node.getChildOfASTNode(); child != null; child = child.getSiblingOfASTNode())
+            evaluateIn(child);
+    }
+
+    // Names, constants and functions are as evaluated as they get
+    private boolean isWorthEvaluating(ASTNode node) {
+        switch (node.getTypeOfASTNode()) {
+            case INTEGER, STRING, TRUE, FALSE, NIL, DUMMY, YSTAR, IDENTIFIER, LAMBDA:
+                return false;
+            case GAMMA:
+                return node.getChildOfASTNode().getTypeOfASTNode() != ASTNodeType.YSTAR;
+            case TAU:
+                for (ASTNode child = node.getChildOfASTNode(); child != null; child = child.getSiblingOfASTNode())
+                    if (isWorthEvaluating(child))
+                        return true;
+                return false;
+            default:
+                return true;
+        }
+    }
+
+    // @return true if the expression was replaced by its value
+    private boolean fold(ASTNode node) {
+        Set<Integer> needed = new TreeSet<Integer>();
+        if (!collectDefinitions(StandardizedTree.freeIdentifiers(node), scope.size(), needed))
+            return false;
+
+        //wrap a copy of the expression in copies of the definitions it needs, innermost first
+        ASTNode program = StandardizedTree.copyTree(node);
+        List<Integer> outermostFirst = new ArrayList<Integer>(needed);
+        for (int i = outermostFirst.size() - 1; i >= 0; i--) {
+            Binding binding = scope.get(outermostFirst.get(i));
+            ASTNode boundVar = StandardizedTree.copyTree(binding.boundVar);
+            boundVar.setSiblingOfASTNode(program);
+            ASTNode lambda = newNode(ASTNodeType.LAMBDA, null, node);
+            lambda.setChildOfASTNode(boundVar);
+            lambda.setSiblingOfASTNode(StandardizedTree.copyTree(binding.value));
+            program = newNode(ASTNodeType.GAMMA, null, node);
+            program.setChildOfASTNode(lambda);
+        }
+
+        CSE_Machine machine = new CSE_Machine(AST.ofStandardizedTree(program));
+        RPALValue value;
+        try {
+            value = machine.evaluateWithFuel(fuel);
+        } catch (RuntimeException | StackOverflowError | OutOfMemoryError abandoned) {
+            //an RPAL error, out of fuel or too big a value; what the machine built is dropped with it
+            return false;
+        } finally {
+            fuel -= machine.getSteps();
+        }
+        ASTNode constant = toTree(value, node, new int[]{MAX_RESULT_NODES});
+        if (constant == null)
+            return false;
+        StandardizedTree.replaceNode(node, constant);
+        return true;
+    }
+
+    /**
+     * Find the definitions that the names, as seen from scope.get(end - 1) inwards, refer to, and the ones those
+     * refer to in turn.
+     *
+     * @return false if one of the names is a parameter, Print, or not defined at all
+     */
+    private boolean collectDefinitions(Set<String> names, int end, Set<Integer> needed) {
+        for (String name : names) {
+            int i = end - 1;
+            while (i >= 0 && !StandardizedTree.bindsName(scope.get(i).boundVar, name))
+                i--;
+            if (i < 0) {
+                PrimitiveFunction builtin = PrimitiveFunction.forName(name);
+                if (builtin == null || builtin.getKind() == PrimitiveFunction.Kind.PRINT)
+                    return false;
+                continue;
+            }
+            Binding binding = scope.get(i);
+            if (binding.value == null)
+                return false;
+            if (needed.add(i) && !collectDefinitions(StandardizedTree.freeIdentifiers(binding.value), i, needed))
+                return false;
+        }
+        return true;
+    }
+
+    // @return the value as a constant expression, or null if it is a function or too big
+    private ASTNode toTree(RPALValue value, ASTNode source, int[] budget) {
+        if (--budget[0] < 0)
+            return null;
+        if (value instanceof IntegerValue)
+            return newNode(ASTNodeType.INTEGER, value.getPrintValue(), source);
+        if (value instanceof StringValue)
+            return newNode(ASTNodeType.STRING, ((StringValue) value).getStringValue(), source);
+        if (value == TruthValue.TRUE)
+            return newNode(ASTNodeType.TRUE, "true", source);
+        if (value == TruthValue.FALSE)
+            return newNode(ASTNodeType.FALSE, "false", source);
+        if (value == DummyValue.DUMMY)
+            return newNode(ASTNodeType.DUMMY, "dummy", source);
+        if (value == Tuple.NIL)
+            return newNode(ASTNodeType.NIL, "nil", source);
+        if (!(value instanceof Tuple))
+            return null;
+
+        Tuple tuple = (Tuple) value;
+        ASTNode tau = newNode(ASTNodeType.TAU, null, source);
+        ASTNode previous = null;
+        for (int n = 1; n <= tuple.size(); n++) {
+            ASTNode element = toTree(tuple.get(n), source, budget);
+            if (element == null)
+                return null;
+            if (previous == null)
+                tau.setChildOfASTNode(element);
+            else
+                previous.setSiblingOfASTNode(element);
+            previous = element;
+        }
+        return tau;
+    }
+
+    private ASTNode newNode(ASTNodeType type, String value, ASTNode source) {
+        ASTNode node = new ASTNode();
+        node.setTypeOfASTNode(type);
+        node.setValueOfASTNode(value);
+        node.setLineNumberOfSourceFile(source.getLineNumberOfSourceFile());
+        return node;
+    }
+}
@@ -0,0 +1,72 @@
+package Abstract_Syntax_Tree;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds the saturated self tail calls of 'rec' functions in the standardized tree.
+ * <p>
+ * 'rec f x1 ... xn = B' standardizes to 'gamma Y* (lambda f. lambda x1. ... lambda xn. B)'. An application
+ * 'f a1 ... an' in tail position of B (B itself, or a branch of a conditional in tail position) with exactly n
+ * arguments, where no xi rebinds f, runs the same lambdas again with new arguments. The CSE machine can then bind
+ * the arguments to fresh frames and restart B, skipping the eta unrolling and the intermediate closures. Calls
+ * inside a nested lambda (including a 'let' in B) run in another environment and are left alone.
+ * </p>
+ */
+class SelfTailCallFinder {
+    private final Map<ASTNode, ASTNode[]> selfTailCalls = new IdentityHashMap<ASTNode, ASTNode[]>();
+
+    /**
+     * @return each self tail call (its outermost GAMMA) mapped to the lambdas of the function it calls, outermost first
+     */
+    Map<ASTNode, ASTNode[]> find(ASTNode root) {
+        findIn(root);
+        return selfTailCalls;
+    }
+
+    private void findIn(ASTNode node) {
+        if (node.getTypeOfASTNode() == ASTNodeType.GAMMA &&
+                node.getChildOfASTNode().getTypeOfASTNode() == ASTNodeType.YSTAR)
+            findInRecursiveFunction(node.getChildOfASTNode().getSiblingOfASTNode());
+        for (ASTNode child = node.getChildOfASTNode(); child != null; child = child.getSiblingOfASTNode())
+            findIn(child);
+    }
+
+    private void findInRecursiveFunction(ASTNode recLambda) {
+        if (recLambda.getTypeOfASTNode() != ASTNodeType.LAMBDA ||
+                recLambda.getChildOfASTNode().getTypeOfASTNode() != ASTNodeType.IDENTIFIER)
+            return;
+        String name = recLambda.getChildOfASTNode().getValueOfASTNode();
+
+        List<ASTNode> lambdas = new ArrayList<ASTNode>();
+        ASTNode body = recLambda.getChildOfASTNode().getSiblingOfASTNode();
+        while (body.getTypeOfASTNode() == ASTNodeType.LAMBDA) {
+            if (StandardizedTree.bindsName(body.getChildOfASTNode(), name)) //a parameter shadows the function
+                return;
+            lambdas.add(body);
+            body = body.getChildOfASTNode().getSiblingOfASTNode();
+        }
+        if (!lambdas.isEmpty())
+            findTailCalls(body, name, lambdas.toArray(new ASTNode[0]));
+    }
+
+    private void findTailCalls(ASTNode node, String name, ASTNode[] lambdas) {
+        if (node.getTypeOfASTNode() == ASTNodeType.CONDITIONAL) {
+            ASTNode thenNode = node.getChildOfASTNode().getSiblingOfASTNode();
+            findTailCalls(thenNode, name, lambdas);
+            findTailCalls(thenNode.getSiblingOfASTNode(), name, lambdas);
+            return;
+        }
+        int arguments = 0;
+        ASTNode rator = node;
+        while (rator.getTypeOfASTNode() == ASTNodeType.GAMMA) {
+            rator = rator.getChildOfASTNode();
+            arguments++;
+        }
+        if (arguments == lambdas.length && rator.getTypeOfASTNode() == ASTNodeType.IDENTIFIER &&
+                rator.getValueOfASTNode().equals(name))
+            selfTailCalls.put(node, lambdas);
+    }
+}
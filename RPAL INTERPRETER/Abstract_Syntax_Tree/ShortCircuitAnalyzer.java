@@ -0,0 +1,201 @@
+package Abstract_Syntax_Tree;
+
+import Cse_Machine.PrimitiveFunction;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Finds the 'or' and '&amp;' whose right operand may be skipped when the left one decides the result.
+ * <p>
+ * Skipping the right operand is only invisible when evaluating it has no effect, cannot fail and terminates, and
+ * it is certain to be a truth value (the operator would otherwise report it). The operand may only be built from
+ * constants, names bound by an enclosing lambda, lambdas, tuples, conditionals, the arithmetic, comparison and
+ * logical operators, the Is* functions, and Null and Order applied to a tuple, with operand types that are known.
+ * The type of a name is the one {@link TypeInference} worked out for it.
+ * </p>
+ * <p>
+ * The left operand is evaluated first, so in 'Null T or Order T gr 100' T is a tuple by the time the right
+ * operand runs. The right operand may rely on that when the left one, T aside, cannot fail either, and the Null
+ * and Order of T are all on one line: if T is not a tuple, the error is then the one the right operand would
+ * have reported first without short-circuit evaluation.
+ * </p>
+ * <p>
+ * Division and exponentiation can fail and any other application may print or loop, so an operand with one of
+ * those is always evaluated. This includes a call of a function of the program, such as a recursive predicate.
+ * </p>
+ */
+class ShortCircuitAnalyzer {
+    private final StandardizedTree.Scope scope = new StandardizedTree.Scope();
+    private final Map<ASTNode, PrimitiveFunction> builtinReferences;
+    private final Map<ASTNode, StaticType> identifierTypes;
+    // The name the left operand of the operator being looked at proves a tuple, and the line of its Null or Order
+    private String provenTuple;
+    private int provenTupleLine;
+    private boolean provenTupleUsed;
+    private final Set<ASTNode> skippable = Collections.newSetFromMap(new IdentityHashMap<ASTNode, Boolean>());
+
+    ShortCircuitAnalyzer(Map<ASTNode, PrimitiveFunction> builtinReferences, Map<ASTNode, StaticType> identifierTypes) {
+        this.builtinReferences = builtinReferences;
+        this.identifierTypes = identifierTypes;
+    }
+
+    /**
+     * @return the OR and AND nodes whose right operand need not be evaluated when the left one decides the result
+     */
+    Set<ASTNode> analyze(ASTNode root) {
+        analyzeIn(root);
+        return skippable;
+    }
+
+    private void analyzeIn(ASTNode node) {
+        if (node.getTypeOfASTNode() == ASTNodeType.LAMBDA) {
+            ASTNode boundVar = node.getChildOfASTNode();
+            scope.enter(boundVar);
+            analyzeIn(boundVar.getSiblingOfASTNode());
+            scope.leave(boundVar);
+            return;
+        }
+        if (node.getTypeOfASTNode() == ASTNodeType.OR || node.getTypeOfASTNode() == ASTNodeType.AND) {
+            ASTNode left = node.getChildOfASTNode();
+            Map<String, Integer> tested = new HashMap<String, Integer>();
+            findTupleTests(left, tested);
+            if (tested.size() == 1) {
+                provenTuple = tested.keySet().iterator().next();
+                provenTupleLine = tested.get(provenTuple);
+            }
+            provenTupleUsed = false;
+            if (kindOf(left.getSiblingOfASTNode()) == StaticType.Kind.TRUTHVALUE &&
+                    (!provenTupleUsed || kindOf(left) != null))
+                skippable.add(node);
+            provenTuple = null;
+        }
+        for (ASTNode child = node.getChildOfASTNode(); child != null; child = child.getSiblingOfASTNode())
+            analyzeIn(child);
+    }
+
+    // Collect the names the expression applies Null or Order to every time it is evaluated, with the line
+    private void findTupleTests(ASTNode node, Map<String, Integer> tested) {
+        ASTNode first = node.getChildOfASTNode();
+        switch (node.getTypeOfASTNode()) {
+            case PLUS, MINUS, MULT, DIV, EXP, LS, LE, GR, GE, EQ, NE:
+                findTupleTests(first, tested);
+                findTupleTests(first.getSiblingOfASTNode(), tested);
+                break;
+            case NEG, NOT, OR, AND, CONDITIONAL: //the right operand of 'or' may itself be skipped, and one arm runs
+                findTupleTests(first, tested);
+                break;
+            case GAMMA:
+                PrimitiveFunction builtin = builtinReferences.get(first);
+                ASTNode rand = first.getSiblingOfASTNode();
+                if (builtin != null && (builtin.getKind() == PrimitiveFunction.Kind.NULL ||
+                        builtin.getKind() == PrimitiveFunction.Kind.ORDER) &&
+                        rand.getTypeOfASTNode() == ASTNodeType.IDENTIFIER && !builtinReferences.containsKey(rand))
+                    tested.putIfAbsent(rand.getValueOfASTNode(), node.getLineNumberOfSourceFile());
+                break;
+            default:
+                break;
+        }
+    }
+
+    // @return what the expression evaluates to (UNKNOWN for some value), or null if evaluating it might print,
+    // fail or not terminate
+    private StaticType.Kind kindOf(ASTNode node) {
+        ASTNode first = node.getChildOfASTNode();
+        switch (node.getTypeOfASTNode()) {
+            case INTEGER:
+                return StaticType.Kind.INTEGER;
+            case STRING:
+                return StaticType.Kind.STRING;
+            case TRUE, FALSE:
+                return StaticType.Kind.TRUTHVALUE;
+            case NIL:
+                return StaticType.Kind.TUPLE;
+            case DUMMY:
+                return StaticType.Kind.DUMMY;
+            case LAMBDA:
+                return StaticType.Kind.FUNCTION;
+            case IDENTIFIER:
+                return kindOfName(node);
+            case TAU:
+                for (ASTNode child = first; child != null; child = child.getSiblingOfASTNode())
+                    if (kindOf(child) == null)
+                        return null;
+                return StaticType.Kind.TUPLE;
+            case PLUS, MINUS, MULT: //overflow goes to arbitrary precision, so these cannot fail on integers
+                return both(first, StaticType.Kind.INTEGER) ? StaticType.Kind.INTEGER : null;
+            case NEG:
+                return kindOf(first) == StaticType.Kind.INTEGER ? StaticType.Kind.INTEGER : null;
+            case NOT:
+                return kindOf(first) == StaticType.Kind.TRUTHVALUE ? StaticType.Kind.TRUTHVALUE : null;
+            case LS, LE, GR, GE:
+                return both(first, StaticType.Kind.INTEGER) ? StaticType.Kind.TRUTHVALUE : null;
+            case OR, AND:
+                return both(first, StaticType.Kind.TRUTHVALUE) ? StaticType.Kind.TRUTHVALUE : null;
+            case EQ, NE: {
+                StaticType.Kind left = kindOf(first);
+                boolean comparable = left == StaticType.Kind.INTEGER || left == StaticType.Kind.STRING ||
+                        left == StaticType.Kind.TRUTHVALUE;
+                return comparable && kindOf(first.getSiblingOfASTNode()) == left ? StaticType.Kind.TRUTHVALUE : null;
+            }
+            case CONDITIONAL: {
+                if (kindOf(first) != StaticType.Kind.TRUTHVALUE)
+                    return null;
+                StaticType.Kind thenKind = kindOf(first.getSiblingOfASTNode());
+                StaticType.Kind elseKind = kindOf(first.getSiblingOfASTNode().getSiblingOfASTNode());
+                if (thenKind == null || elseKind == null)
+                    return null;
+                return thenKind == elseKind ? thenKind : StaticType.Kind.UNKNOWN;
+            }
+            case GAMMA:
+                return kindOfBuiltinApplication(node, builtinReferences.get(first), first.getSiblingOfASTNode());
+            default:
+                return null;
+        }
+    }
+
+    private StaticType.Kind kindOfName(ASTNode name) {
+        if (builtinReferences.containsKey(name))
+            return StaticType.Kind.FUNCTION;
+        if (!scope.isBound(name.getValueOfASTNode())) //an unbound name that is not a builtin is an error
+            return null;
+        StaticType type = identifierTypes.get(name);
+        if (type != null)
+            return type.getKind();
+        return isProvenTuple(name) ? StaticType.Kind.TUPLE : StaticType.Kind.UNKNOWN;
+    }
+
+    private boolean isProvenTuple(ASTNode name) {
+        return name.getValueOfASTNode().equals(provenTuple) && !identifierTypes.containsKey(name);
+    }
+
+    private StaticType.Kind kindOfBuiltinApplication(ASTNode node, PrimitiveFunction builtin, ASTNode rand) {
+        StaticType.Kind randKind = builtin == null ? null : kindOf(rand);
+        if (randKind == null)
+            return null;
+        switch (builtin.getKind()) {
+            case ISINTEGER, ISSTRING, ISTUPLE, ISDUMMY, ISTRUTHVALUE, ISFUNCTION:
+                return StaticType.Kind.TRUTHVALUE;
+            case NULL, ORDER:
+                if (randKind != StaticType.Kind.TUPLE)
+                    return null;
+                if (rand.getTypeOfASTNode() == ASTNodeType.IDENTIFIER && isProvenTuple(rand)) {
+                    //fails, if T is not a tuple, as the left operand's Null or Order would
+                    if (node.getLineNumberOfSourceFile() != provenTupleLine)
+                        return null;
+                    provenTupleUsed = true;
+                }
+                return builtin.getKind() == PrimitiveFunction.Kind.NULL ? StaticType.Kind.TRUTHVALUE :
+                        StaticType.Kind.INTEGER;
+            default:
+                return null;
+        }
+    }
+
+    private boolean both(ASTNode first, StaticType.Kind kind) {
+        return kindOf(first) == kind && kindOf(first.getSiblingOfASTNode()) == kind;
+    }
+}
@@ -0,0 +1,119 @@
+package Abstract_Syntax_Tree;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Helpers shared by the passes that rewrite the standardized tree. After standardization the only binder left is
+ * LAMBDA, whose first child is the bound variable (an identifier, or a comma of identifiers) and whose second
+ * child is the body.
+ */
+final class StandardizedTree {
+
+    private StandardizedTree() {
+    }
+
+    /**
+     * Names bound by the lambdas enclosing the node a pass is currently looking at.
+     */
+    static class Scope {
+        private final Map<String, Integer> boundNames = new HashMap<String, Integer>();
+
+        void enter(ASTNode boundVar) {
+            for (String var : namesBoundBy(boundVar))
+                boundNames.merge(var, 1, Integer::sum);
+        }
+
+        void leave(ASTNode boundVar) {
+            for (String var : namesBoundBy(boundVar))
+                boundNames.compute(var, (k, v) -> v == 1 ? null : v - 1);
+        }
+
+        boolean isBound(String name) {
+            return boundNames.containsKey(name);
+        }
+    }
+
+    static Set<String> namesBoundBy(ASTNode boundVar) {
+        Set<String> names = new HashSet<String>();
+        if (boundVar.getTypeOfASTNode() == ASTNodeType.IDENTIFIER)
+            names.add(boundVar.getValueOfASTNode());
+        else if (boundVar.getTypeOfASTNode() == ASTNodeType.COMMA)
+            for (ASTNode var = boundVar.getChildOfASTNode(); var != null; var = var.getSiblingOfASTNode())
+                names.add(var.getValueOfASTNode());
+        return names;
+    }
+
+    static boolean bindsName(ASTNode boundVar, String name) {
+        return namesBoundBy(boundVar).contains(name);
+    }
+
+    static Set<String> freeIdentifiers(ASTNode node) {
+        Set<String> free = new HashSet<String>();
+        collectFreeIdentifiers(node, new Scope(), free);
+        return free;
+    }
+
+    private static void collectFreeIdentifiers(ASTNode node, Scope scope, Set<String> free) {
+        if (node.getTypeOfASTNode() == ASTNodeType.IDENTIFIER) {
+            if (!scope.isBound(node.getValueOfASTNode()))
+                free.add(node.getValueOfASTNode());
+            return;
+        }
+        if (node.getTypeOfASTNode() == ASTNodeType.LAMBDA) {
+            ASTNode boundVar = node.getChildOfASTNode();
+            scope.enter(boundVar);
+            collectFreeIdentifiers(boundVar.getSiblingOfASTNode(), scope, free);
+            scope.leave(boundVar);
+            return;
+        }
+        for (ASTNode child = node.getChildOfASTNode(); child != null; child = child.getSiblingOfASTNode())
+            collectFreeIdentifiers(child, scope, free);
+    }
+
+    static int size(ASTNode node) {
+        int size = 1;
+        for (ASTNode child = node.getChildOfASTNode(); child != null; child = child.getSiblingOfASTNode())
+            size += size(child);
+        return size;
+    }
+
+    static int countChildren(ASTNode node) {
+        int numChildren = 0;
+        for (ASTNode child = node.getChildOfASTNode(); child != null; child = child.getSiblingOfASTNode())
+            numChildren++;
+        return numChildren;
+    }
+
+    /**
+     * Copy a node and its children (but not its siblings).
+     */
+    static ASTNode copyTree(ASTNode node) {
+        ASTNode copy = new ASTNode();
+        copy.setTypeOfASTNode(node.getTypeOfASTNode());
+        copy.setValueOfASTNode(node.getValueOfASTNode());
+        copy.setLineNumberOfSourceFile(node.getLineNumberOfSourceFile());
+        ASTNode previousCopy = null;
+        for (ASTNode child = node.getChildOfASTNode(); child != null; child = child.getSiblingOfASTNode()) {
+            ASTNode childCopy = copyTree(child);
+            if (previousCopy == null)
+                copy.setChildOfASTNode(childCopy);
+            else
+                previousCopy.setSiblingOfASTNode(childCopy);
+            previousCopy = childCopy;
+        }
+        return copy;
+    }
+
+    /**
+     * Overwrite a node with another one in place, keeping the node's own sibling link so its parent is unaffected.
+     */
+    static void replaceNode(ASTNode node, ASTNode replacement) {
+        node.setTypeOfASTNode(replacement.getTypeOfASTNode());
+        node.setValueOfASTNode(replacement.getValueOfASTNode());
+        node.setChildOfASTNode(replacement.getChildOfASTNode());
+        node.setLineNumberOfSourceFile(replacement.getLineNumberOfSourceFile());
+    }
+}
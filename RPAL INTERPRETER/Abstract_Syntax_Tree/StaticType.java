@@ -0,0 +1,86 @@
+package Abstract_Syntax_Tree;
+
+import java.util.Objects;
+
+/**
+ * What {@link TypeInference} knows about the value of an expression. A function may also carry the number of
+ * arguments it takes before doing any work and the type of what it then returns.
+ */
+final class StaticType {
+    enum Kind {
+        INTEGER, STRING, TRUTHVALUE, TUPLE, FUNCTION, DUMMY, UNKNOWN
+    }
+
+    static final StaticType INTEGER = new StaticType(Kind.INTEGER, 0, null);
+    static final StaticType STRING = new StaticType(Kind.STRING, 0, null);
+    static final StaticType TRUTHVALUE = new StaticType(Kind.TRUTHVALUE, 0, null);
+    static final StaticType TUPLE = new StaticType(Kind.TUPLE, 0, null);
+    static final StaticType FUNCTION = new StaticType(Kind.FUNCTION, 0, null);
+    static final StaticType DUMMY = new StaticType(Kind.DUMMY, 0, null);
+    static final StaticType UNKNOWN = new StaticType(Kind.UNKNOWN, 0, null);
+
+    private final Kind kind;
+    private final int arity;           // 0 when not known
+    private final StaticType result;   // what applying it to arity arguments returns
+
+    private StaticType(Kind kind, int arity, StaticType result) {
+        this.kind = kind;
+        this.arity = arity;
+        this.result = result;
+    }
+
+    static StaticType function(int arity, StaticType result) {
+        return new StaticType(Kind.FUNCTION, arity, result);
+    }
+
+    Kind getKind() {
+        return kind;
+    }
+
+    boolean isKnown() {
+        return kind != Kind.UNKNOWN;
+    }
+
+    /**
+     * @return the type of applying this function to one argument
+     */
+    StaticType applied() {
+        if (kind != Kind.FUNCTION || arity == 0)
+            return UNKNOWN;
+        return arity == 1 ? result : function(arity - 1, result);
+    }
+
+    /**
+     * @return what is known of a value that has either this type or the other one
+     */
+    StaticType join(StaticType other) {
+        if (equals(other))
+            return this;
+        return kind == other.kind ? new StaticType(kind, 0, null) : UNKNOWN;
+    }
+
+    String describe() {
+        return switch (kind) {
+            case INTEGER -> "an integer";
+            case STRING -> "a string";
+            case TRUTHVALUE -> "a truthvalue";
+            case TUPLE -> "a tuple";
+            case FUNCTION -> "a function";
+            case DUMMY -> "dummy";
+            default -> "a value";
+        };
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof StaticType))
+            return false;
+        StaticType type = (StaticType) other;
+        return kind == type.kind && arity == type.arity && Objects.equals(result, type.result);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(kind, arity, result);
+    }
+}
@@ -0,0 +1,432 @@
+package Abstract_Syntax_Tree;
+
+import Cse_Machine.PrimitiveFunction;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Works out the types of operands in the standardized tree, so the CSE machine can skip the type checks it would
+ * otherwise make, and points out operations that are certain to fail if they are ever evaluated.
+ * <p>
+ * The tree is walked in the order the CSE machine evaluates it. Names are bound once and never change, so a type
+ * learnt for a name holds from then on, including in lambdas created later: a constant or a 'let' tells the type
+ * directly, and an operation that checks its operands tells that every name it was given had the expected type,
+ * since the program stops otherwise. What is learnt inside a lambda's body is forgotten when the body ends, as the
+ * body runs later or not at all, and only what both branches of a conditional learnt is kept after it. A function
+ * defined with 'let' or 'rec' is known to return the type its body has, which is worked out assuming nothing of
+ * its parameters or of its own recursive calls.
+ * </p>
+ * <p>
+ * A condition that tests a name with Isinteger, Isstring, Istuple, Istruthvalue, Isdummy or Isfunction, alone or
+ * joined by '&amp;', tells the name's type in the branch taken when it holds. A condition known from the types
+ * alone to always hold, or never, leaves the other branch unreachable: it is not looked at, so nothing in it is
+ * reported. A message is reported once per source line.
+ * </p>
+ * <p>
+ * With short-circuit evaluation the right operand of an 'or' or '&amp;' may be evaluated after the left one or
+ * not at all, so neither operand relies on what was learnt from the other, and only what the left one taught is
+ * kept after the operator.
+ * </p>
+ */
+class TypeInference {
+    private final Map<ASTNode, PrimitiveFunction> builtinReferences;
+    private Map<String, StaticType> facts = new HashMap<String, StaticType>();
+    private final Set<ASTNode> verified = Collections.newSetFromMap(new IdentityHashMap<ASTNode, Boolean>());
+    private final Map<ASTNode, StaticType> identifierTypes = new IdentityHashMap<ASTNode, StaticType>();
+    private final boolean shortCircuitEvaluation;
+    private final Set<String> warnings = new LinkedHashSet<String>();
+
+    TypeInference(Map<ASTNode, PrimitiveFunction> builtinReferences, boolean shortCircuitEvaluation) {
+        this.builtinReferences = builtinReferences;
+        this.shortCircuitEvaluation = shortCircuitEvaluation;
+    }
+
+    /**
+     * @return the operator nodes whose operands are known to have the types the operator expects
+     */
+    Set<ASTNode> infer(ASTNode root) {
+        typeOf(root);
+        return verified;
+    }
+
+    /**
+     * @return a message, with its source line number, for each operation found to fail whenever it is evaluated
+     */
+    List<String> getWarnings() {
+        return new ArrayList<String>(warnings);
+    }
+
+    /**
+     * @return the identifier nodes, other than references to predefined functions, known to have a type when they
+     * are evaluated, each mapped to that type
+     */
+    Map<ASTNode, StaticType> getIdentifierTypes() {
+        return identifierTypes;
+    }
+
+    private StaticType typeOf(ASTNode node) {
+        ASTNode first = node.getChildOfASTNode();
+        switch (node.getTypeOfASTNode()) {
+            case INTEGER:
+                return StaticType.INTEGER;
+            case STRING:
+                return StaticType.STRING;
+            case TRUE, FALSE:
+                return StaticType.TRUTHVALUE;
+            case NIL:
+                return StaticType.TUPLE;
+            case DUMMY:
+                return StaticType.DUMMY;
+            case YSTAR:
+                return StaticType.FUNCTION;
+            case IDENTIFIER: {
+                if (builtinReferences.containsKey(node))
+                    return StaticType.FUNCTION;
+                StaticType type = facts.getOrDefault(node.getValueOfASTNode(), StaticType.UNKNOWN);
+                if (type.isKnown())
+                    identifierTypes.put(node, type);
+                return type;
+            }
+            case LAMBDA:
+                return typeOfFunction(node);
+            case TAU: {
+                //the last element is evaluated first
+                List<ASTNode> elements = new ArrayList<ASTNode>();
+                for (ASTNode child = first; child != null; child = child.getSiblingOfASTNode())
+                    elements.add(child);
+                for (int i = elements.size() - 1; i >= 0; i--)
+                    typeOf(elements.get(i));
+                return StaticType.TUPLE;
+            }
+            case PLUS, MINUS, MULT, DIV, EXP:
+                binaryOperation(node, StaticType.INTEGER);
+                return StaticType.INTEGER;
+            case LS, LE, GR, GE:
+                binaryOperation(node, StaticType.INTEGER);
+                return StaticType.TRUTHVALUE;
+            case OR, AND:
+                if (shortCircuitEvaluation)
+                    independentOperands(node);
+                else
+                    binaryOperation(node, StaticType.TRUTHVALUE);
+                return StaticType.TRUTHVALUE;
+            case EQ, NE:
+                equality(node);
+                return StaticType.TRUTHVALUE;
+            case AUG: {
+                typeOf(first.getSiblingOfASTNode());
+                StaticType tuple = typeOf(first);
+                if (expect(node, first, tuple, StaticType.TUPLE))
+                    verified.add(node);
+                return StaticType.TUPLE;
+            }
+            case NOT:
+                if (expect(node, first, typeOf(first), StaticType.TRUTHVALUE))
+                    verified.add(node);
+                return StaticType.TRUTHVALUE;
+            case NEG:
+                if (expect(node, first, typeOf(first), StaticType.INTEGER))
+                    verified.add(node);
+                return StaticType.INTEGER;
+            case CONDITIONAL:
+                return conditional(node);
+            case GAMMA:
+                return application(node);
+            default:
+                return StaticType.UNKNOWN;
+        }
+    }
+
+    // The second operand is evaluated first, then the first, then the operator checks both
+    private void binaryOperation(ASTNode node, StaticType expected) {
+        ASTNode first = node.getChildOfASTNode();
+        ASTNode second = first.getSiblingOfASTNode();
+        StaticType secondType = typeOf(second);
+        StaticType firstType = typeOf(first);
+        boolean firstOk = expect(node, first, firstType, expected);
+        boolean secondOk = expect(node, second, secondType, expected);
+        if (firstOk && secondOk)
+            verified.add(node);
+    }
+
+    // Each operand of an 'or' or '&' is looked at with only what was known before the operator
+    private void independentOperands(ASTNode node) {
+        ASTNode first = node.getChildOfASTNode();
+        ASTNode second = first.getSiblingOfASTNode();
+        Map<String, StaticType> before = new HashMap<String, StaticType>(facts);
+        boolean secondOk = expect(node, second, typeOf(second), StaticType.TRUTHVALUE);
+        facts = before;
+        boolean firstOk = expect(node, first, typeOf(first), StaticType.TRUTHVALUE);
+        if (firstOk && secondOk)
+            verified.add(node);
+    }
+
+    // eq and ne compare integers, strings or truthvalues, both of the same kind
+    private void equality(ASTNode node) {
+        ASTNode first = node.getChildOfASTNode();
+        ASTNode second = first.getSiblingOfASTNode();
+        StaticType secondType = typeOf(second);
+        StaticType firstType = typeOf(first);
+        if (firstType.isKnown() && !isComparable(firstType))
+            warn(node, "Cannot " + node.getTypeOfASTNode() + " " + firstType.describe());
+        else if (secondType.isKnown() && !isComparable(secondType))
+            warn(node, "Cannot " + node.getTypeOfASTNode() + " " + secondType.describe());
+        else if (isComparable(firstType) && isComparable(secondType) && firstType.getKind() != secondType.getKind())
+            warn(node, "Cannot compare " + firstType.describe() + " with " + secondType.describe());
+
+        if (isComparable(firstType) && !secondType.isKnown())
+            learn(second, firstType);
+        else if (isComparable(secondType) && !firstType.isKnown())
+            learn(first, secondType);
+        if (firstType.equals(StaticType.INTEGER) && secondType.equals(StaticType.INTEGER))
+            verified.add(node);
+    }
+
+    private boolean isComparable(StaticType type) {
+        return type.equals(StaticType.INTEGER) || type.equals(StaticType.STRING) || type.equals(StaticType.TRUTHVALUE);
+    }
+
+    private StaticType conditional(ASTNode node) {
+        ASTNode condition = node.getChildOfASTNode();
+        ASTNode thenNode = condition.getSiblingOfASTNode();
+        ASTNode elseNode = thenNode.getSiblingOfASTNode();
+        expect(node, condition, typeOf(condition), StaticType.TRUTHVALUE);
+        Boolean outcome = outcomeOf(condition);
+        if (outcome == Boolean.TRUE) {
+            learnFromGuard(condition);
+            return typeOf(thenNode);
+        }
+        if (outcome == Boolean.FALSE)
+            return typeOf(elseNode);
+
+        Map<String, StaticType> before = new HashMap<String, StaticType>(facts);
+        learnFromGuard(condition);
+        StaticType thenType = typeOf(thenNode);
+        Map<String, StaticType> afterThen = facts;
+        facts = before;
+        StaticType elseType = typeOf(elseNode);
+        facts.entrySet().removeIf(fact -> !fact.getValue().equals(afterThen.get(fact.getKey())));
+        return thenType.join(elseType);
+    }
+
+    // @return the value the condition is certain to have, or null if that depends on what the program computes
+    private Boolean outcomeOf(ASTNode condition) {
+        switch (condition.getTypeOfASTNode()) {
+            case TRUE:
+                return Boolean.TRUE;
+            case FALSE:
+                return Boolean.FALSE;
+            case NOT: {
+                Boolean operand = outcomeOf(condition.getChildOfASTNode());
+                return operand == null ? null : !operand;
+            }
+            case GAMMA: {
+                StaticType tested = testedType(condition);
+                if (tested == null || tested.getKind() == StaticType.Kind.FUNCTION) //Isfunction is false on Print
+                    return null;
+                StaticType type = knownType(condition.getChildOfASTNode().getSiblingOfASTNode());
+                return type.isKnown() ? type.getKind() == tested.getKind() : null;
+            }
+            default:
+                return null;
+        }
+    }
+
+    // A guard 'Is<type> x', or several joined by '&', holds: x has that type
+    private void learnFromGuard(ASTNode condition) {
+        if (condition.getTypeOfASTNode() == ASTNodeType.AND) {
+            learnFromGuard(condition.getChildOfASTNode());
+            learnFromGuard(condition.getChildOfASTNode().getSiblingOfASTNode());
+            return;
+        }
+        StaticType tested = testedType(condition);
+        if (tested != null)
+            learn(condition.getChildOfASTNode().getSiblingOfASTNode(), tested);
+    }
+
+    // @return the type an application of Isinteger, Isstring, ... tests for, or null if it is not one
+    private StaticType testedType(ASTNode application) {
+        if (application.getTypeOfASTNode() != ASTNodeType.GAMMA)
+            return null;
+        PrimitiveFunction builtin = builtinReferences.get(application.getChildOfASTNode());
+        if (builtin == null)
+            return null;
+        switch (builtin.getKind()) {
+            case ISINTEGER:
+                return StaticType.INTEGER;
+            case ISSTRING:
+                return StaticType.STRING;
+            case ISTUPLE:
+                return StaticType.TUPLE;
+            case ISTRUTHVALUE:
+                return StaticType.TRUTHVALUE;
+            case ISDUMMY:
+                return StaticType.DUMMY;
+            case ISFUNCTION:
+                return StaticType.FUNCTION;
+            default:
+                return null;
+        }
+    }
+
+    // What is known of a name or a constant without evaluating anything
+    private StaticType knownType(ASTNode node) {
+        switch (node.getTypeOfASTNode()) {
+            case INTEGER, STRING, TRUE, FALSE, NIL, DUMMY, IDENTIFIER:
+                return typeOf(node);
+            case LAMBDA:
+                return StaticType.FUNCTION;
+            default:
+                return StaticType.UNKNOWN;
+        }
+    }
+
+    private StaticType application(ASTNode node) {
+        ASTNode rator = node.getChildOfASTNode();
+        ASTNode rand = rator.getSiblingOfASTNode();
+
+        if (rator.getTypeOfASTNode() == ASTNodeType.YSTAR && rand.getTypeOfASTNode() == ASTNodeType.LAMBDA)
+            return typeOfRecursiveFunction(rand);
+        if (rator.getTypeOfASTNode() == ASTNodeType.LAMBDA) //a definition: the body runs right away
+            return definition(rator, typeOf(rand));
+
+        StaticType randType = typeOf(rand);
+        StaticType ratorType = typeOf(rator);
+        PrimitiveFunction builtin = builtinReferences.get(rator);
+        if (builtin != null)
+            return builtinApplication(node, builtin, rand, randType);
+        switch (ratorType.getKind()) {
+            case INTEGER, STRING, TRUTHVALUE, DUMMY:
+                warn(node, "Cannot apply " + ratorType.describe());
+                return StaticType.UNKNOWN;
+            case TUPLE:
+                expect(node, rand, randType, StaticType.INTEGER);
+                return StaticType.UNKNOWN;
+            default:
+                return ratorType.applied();
+        }
+    }
+
+    private StaticType builtinApplication(ASTNode node, PrimitiveFunction builtin, ASTNode rand, StaticType randType) {
+        switch (builtin.getKind()) {
+            case STEM, STERN:
+                expect(node, rand, randType, StaticType.STRING);
+                return StaticType.STRING;
+            case CONC:
+                expect(node, rand, randType, StaticType.STRING);
+                return StaticType.function(1, StaticType.STRING);
+            case ITOS:
+                expect(node, rand, randType, StaticType.INTEGER);
+                return StaticType.STRING;
+            case ORDER:
+                expect(node, rand, randType, StaticType.TUPLE);
+                return StaticType.INTEGER;
+            case NULL:
+                expect(node, rand, randType, StaticType.TUPLE);
+                return StaticType.TRUTHVALUE;
+            case NEG:
+                expect(node, rand, randType, StaticType.INTEGER);
+                return StaticType.INTEGER;
+            case PRINT:
+                return StaticType.DUMMY;
+            case Y_STAR:
+                return StaticType.FUNCTION;
+            default: //the Is* functions
+                return StaticType.TRUTHVALUE;
+        }
+    }
+
+    // 'gamma (lambda x. B) E' with E already evaluated to the given type
+    private StaticType definition(ASTNode lambda, StaticType valueType) {
+        ASTNode boundVar = lambda.getChildOfASTNode();
+        Map<String, StaticType> shadowed = bind(boundVar);
+        if (boundVar.getTypeOfASTNode() == ASTNodeType.IDENTIFIER && valueType.isKnown())
+            facts.put(boundVar.getValueOfASTNode(), valueType);
+        StaticType bodyType = typeOf(boundVar.getSiblingOfASTNode());
+        unbind(boundVar, shadowed);
+        return bodyType;
+    }
+
+    // A lambda is only evaluated into a closure here; its body is looked at with what is known now
+    private StaticType typeOfFunction(ASTNode lambda) {
+        Map<String, StaticType> before = new HashMap<String, StaticType>(facts);
+        int arity = 0;
+        ASTNode body = lambda;
+        while (body.getTypeOfASTNode() == ASTNodeType.LAMBDA) {
+            bind(body.getChildOfASTNode());
+            arity++;
+            body = body.getChildOfASTNode().getSiblingOfASTNode();
+        }
+        StaticType result = typeOf(body);
+        facts = before;
+        return StaticType.function(arity, result);
+    }
+
+    // 'rec f = lambda ...': f's own calls are only known to return something
+    private StaticType typeOfRecursiveFunction(ASTNode recLambda) {
+        ASTNode boundVar = recLambda.getChildOfASTNode();
+        ASTNode function = boundVar.getSiblingOfASTNode();
+        if (boundVar.getTypeOfASTNode() != ASTNodeType.IDENTIFIER || function.getTypeOfASTNode() != ASTNodeType.LAMBDA) {
+            typeOfFunction(recLambda);
+            return StaticType.UNKNOWN;
+        }
+        int arity = 0;
+        for (ASTNode lambda = function; lambda.getTypeOfASTNode() == ASTNodeType.LAMBDA;
+             lambda = lambda.getChildOfASTNode().getSiblingOfASTNode())
+            arity++;
+
+        Map<String, StaticType> shadowed = bind(boundVar);
+        facts.put(boundVar.getValueOfASTNode(), StaticType.function(arity, StaticType.UNKNOWN));
+        StaticType type = typeOfFunction(function);
+        unbind(boundVar, shadowed);
+        return type;
+    }
+
+    // A new binding hides what was known of the same names; returns that, for unbind()
+    private Map<String, StaticType> bind(ASTNode boundVar) {
+        Map<String, StaticType> shadowed = new HashMap<String, StaticType>();
+        for (String name : StandardizedTree.namesBoundBy(boundVar))
+            shadowed.put(name, facts.remove(name));
+        return shadowed;
+    }
+
+    private void unbind(ASTNode boundVar, Map<String, StaticType> shadowed) {
+        for (String name : StandardizedTree.namesBoundBy(boundVar)) {
+            facts.remove(name);
+            if (shadowed.get(name) != null)
+                facts.put(name, shadowed.get(name));
+        }
+    }
+
+    /**
+     * An operator that needs the operand to have the expected type has evaluated it: report it if it certainly
+     * does not, and otherwise remember the type of a name, which the operator is about to check.
+     *
+     * @return true if the operand is known to have the expected type
+     */
+    private boolean expect(ASTNode operator, ASTNode operand, StaticType type, StaticType expected) {
+        if (type.isKnown() && type.getKind() != expected.getKind()) {
+            warn(operator, "Expected " + expected.describe() + "; will be given " + type.describe());
+            return false;
+        }
+        learn(operand, expected);
+        return type.isKnown();
+    }
+
+    private void learn(ASTNode operand, StaticType type) {
+        if (operand.getTypeOfASTNode() == ASTNodeType.IDENTIFIER && !builtinReferences.containsKey(operand) &&
+                !facts.containsKey(operand.getValueOfASTNode()))
+            facts.put(operand.getValueOfASTNode(), type);
+    }
+
+    private void warn(ASTNode node, String message) {
+        warnings.add("Warning :" + node.getLineNumberOfSourceFile() + ": " + message);
+    }
+}
@@ -4,395 +4,721 @@ import Abstract_Syntax_Tree.AST;
 import Abstract_Syntax_Tree.ASTNode;
 import Abstract_Syntax_Tree.ASTNodeType;
 
+import java.io.PrintStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Stack;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 public class CSE_Machine {
 
-    private final Stack<ASTNode> valueStack;
+    // A delta applied at least this many times is reported as hot by printStatistics()
+    public static final long HOT_DELTA_THRESHOLD = 1000;
+    // How many application sites printStatistics() lists
+    private static final int CALL_SITES_SHOWN = 10;
+    // How many results of memoized functions are kept, unless the system property of this name says otherwise
+    public static final String MEMO_CAPACITY_PROPERTY = "rpal.memo.capacity";
+    private static final int DEFAULT_MEMO_CAPACITY = 100000;
+
+    // Tuple components are only forked this many forks deep, which bounds the Java stack a joining thread uses
+    private static final int MAX_FORK_DEPTH = 12;
+    // A pool thread with more queued tasks than this evaluates components in place: the others are busy enough
+    private static final int MAX_SURPLUS_TASKS = 3;
+    // With a single thread in the pool, forking only adds overhead
+    private static final boolean POOL_IS_PARALLEL = ForkJoinPool.getCommonPoolParallelism() > 1;
+
+    // The largest integer and string evaluateWithFuel() builds; bigger values are left to be computed at run time
+    private static final int MAX_FOLDED_INTEGER_BITS = 1 << 16;
+    private static final int MAX_FOLDED_STRING_LENGTH = 1 << 16;
+
+    // Pushed under a delta's body when it is applied; see evaluateRPALProgram()
+    private static final ASTNode ENVIRONMENT_MARKER = new ASTNode();
+
+    // Exchanges the top two values; see shortCircuit()
+    private static final ASTNode SWAP = new ASTNode();
+
+    // Takes the value of the next forked tuple component; see forkComponents()
+    private static final ASTNode JOIN = new ASTNode();
+
+    static {
+        ENVIRONMENT_MARKER.setTypeOfASTNode(ASTNodeType.ENVIRONMENT);
+        SWAP.setTypeOfASTNode(ASTNodeType.SWAP);
+        JOIN.setTypeOfASTNode(ASTNodeType.JOIN);
+    }
+
+    private final Stack<RPALValue> valueStack;
+    private final ControlStack controlStack;
+    private final ArrayDeque<Environment> savedEnvironments; // one per environment marker on the control stack
+    private Environment currentEnv;
     private final DeltaControlStructure rootDelta;
+    private final long[] deltaInvocationCounts; // indexed by DeltaControlStructure index
+    private final String[] deltaNames;
+    private final List<GammaSite> gammaSites; // every site applied at least once, in order of first use
+    private final MemoTable memoTable; // null unless memoization is enabled
+    private boolean partialEvaluation; // errors abandon evaluateWithFuel() rather than exit
+    private final boolean shortCircuitEvaluation;
+    private long rightOperandsSkipped;
+    private long rightOperandsEvaluated;
+    private final boolean parallelEvaluation;
+    private final int forkDepth; // 0 for the machine running the program, 1 + its forker's for a forked component
+    private final ArrayDeque<ComponentTask> pendingComponents; // forked and not joined yet, the next to join on top
+    private long componentsForked;
+    private long componentsKeptInPlace; // forkable, but not worth forking when reached
+    private long steps; // counted only while evaluating a forked component or with fuel
     public String evaluationResult;
 
     public CSE_Machine(AST ast) {
         if (!ast.isASTStandardized())
             throw new RuntimeException("AST has NOT been standardized!");
         rootDelta = ast.createDeltas();
-        rootDelta.setLinkedEnv(new Environment()); //primitive environment
-        valueStack = new Stack<ASTNode>();
+        valueStack = new Stack<RPALValue>();
+        controlStack = new ControlStack();
+        savedEnvironments = new ArrayDeque<Environment>();
+        deltaInvocationCounts = new long[ast.getNumberOfDeltas()];
+        deltaNames = new String[ast.getNumberOfDeltas()];
+        gammaSites = new ArrayList<GammaSite>();
+        memoTable = ast.isMemoizationEnabled() ? new MemoTable(Integer.getInteger(MEMO_CAPACITY_PROPERTY, DEFAULT_MEMO_CAPACITY)) : null;
+        shortCircuitEvaluation = ast.isShortCircuitEvaluationEnabled();
+        parallelEvaluation = ast.isParallelEvaluationEnabled();
+        forkDepth = 0;
+        pendingComponents = new ArrayDeque<ComponentTask>();
+    }
+
+    // A machine for a tuple component forked by the given one. The memo table is not shared between threads, so
+    // the component runs without one
+    private CSE_Machine(CSE_Machine forker) {
+        rootDelta = forker.rootDelta;
+        valueStack = new Stack<RPALValue>();
+        controlStack = new ControlStack();
+        savedEnvironments = new ArrayDeque<Environment>();
+        deltaInvocationCounts = new long[forker.deltaInvocationCounts.length];
+        deltaNames = new String[forker.deltaNames.length];
+        gammaSites = new ArrayList<GammaSite>();
+        memoTable = null;
+        shortCircuitEvaluation = forker.shortCircuitEvaluation;
+        parallelEvaluation = true;
+        forkDepth = forker.forkDepth + 1;
+        pendingComponents = new ArrayDeque<ComponentTask>();
     }
 
     private void printEvaluationErrorToStdOut(int sourceLineNumber, String message) {
-        System.out.println("Error :" + sourceLineNumber + ": " + message);
+        if (partialEvaluation)
+            throw new EvaluationAbandonedException(message);
+        reportError("Error :" + sourceLineNumber + ": " + message);
+    }
+
+    // A forked component's error goes back to the machine that forked it, which reports it when it joins the
+    // component: only then is it certain that evaluating the components one by one would have got that far
+    private void reportError(String error) {
+        if (forkDepth > 0)
+            throw new EvaluationAbandonedException(error);
+        System.out.println(error);
         System.exit(1);
     }
 
+    /**
+     * Runs the whole program in one loop. Applying a closure does not recurse: the caller's environment is saved
+     * on an explicit stack and an environment marker is pushed under the callee's body, so when the marker
+     * reaches the top of the control stack the caller's environment is restored (the textbook CSE rule). Both
+     * stacks live on the heap, so recursion depth is only limited by heap space.
+     */
     public void evaluateRPALProgram() {
-        processControlStructures(rootDelta, rootDelta.getLinkedEnv());
+        currentEnv = Environment.create(null, 0); //primitive environment
+        controlStack.pushAll(rootDelta.getBody());
+
+        while (!controlStack.isEmpty())
+            processCurrentNodeOfControlStructure();
     }
 
-    private void processControlStructures(DeltaControlStructure currentDelta, Environment currentEnv) {
-        //create a new control stack and add all of the delta's body to it so that the delta's body isn't
-        //modified whenever the control stack is popped in all the functions below
-        Stack<ASTNode> controlStack = new Stack<ASTNode>();
-        controlStack.addAll(currentDelta.getBody());
+    /**
+     * Evaluate an expression that cannot print, taking at most the given number of steps, as the partial
+     * evaluator does at compile time. A step that would build an integer of more than
+     * {@value #MAX_FOLDED_INTEGER_BITS} bits or a string of more than {@value #MAX_FOLDED_STRING_LENGTH}
+     * characters abandons the evaluation too, as such a step can cost more than all the others together.
+     *
+     * @return the value of the expression
+     * @throws EvaluationAbandonedException if evaluating it fails or needs more steps
+     * @see #getSteps()
+     */
+    public RPALValue evaluateWithFuel(long fuel) {
+        partialEvaluation = true;
+        currentEnv = Environment.create(null, 0);
+        controlStack.pushAll(rootDelta.getBody());
+
+        for (; !controlStack.isEmpty(); steps++) {
+            if (steps == fuel)
+                throw new EvaluationAbandonedException("Out of fuel after " + steps + " steps");
+            processCurrentNodeOfControlStructure();
+        }
+        return valueStack.pop();
+    }
 
-        while (!controlStack.isEmpty())
-            processCurrentNodeOfControlStructure(currentDelta, currentEnv, controlStack);
-    }
-
-    private void processCurrentNodeOfControlStructure(DeltaControlStructure currentDelta, Environment currentEnv, Stack<ASTNode> currentControlStack) {
-        ASTNode node = currentControlStack.pop();
-        if (!applyBinaryOperation(node) && !applyUnaryOperation(node)) {
-            switch (node.getTypeOfASTNode()) {
-                case IDENTIFIER -> handleIdentifiers(node, currentEnv);
-                case NIL, TAU -> createTuple(node);
-                case BETA -> handleBeta((Beta_Condition_Eval) node, currentControlStack);
-                case GAMMA -> applyGamma(currentDelta, node, currentEnv, currentControlStack);
-                case DELTA -> {
-                    ((DeltaControlStructure) node).setLinkedEnv(currentEnv); //RULE 2
-                    valueStack.push(node);
-                }
-                default ->
-                    // Although we use ASTNodes, a CSEM will only ever see a subset of all possible ASTNodeTypes.
-                    // These are the types that are NOT standardized away into lambdas and gammas. E.g. types
-                    // such as LET, WHERE, WITHIN, SIMULTDEF etc will NEVER be encountered by the CSEM
-                        valueStack.push(node);
+    /**
+     * @return the steps {@link #evaluateWithFuel(long)} took, whether it finished or not
+     */
+    public long getSteps() {
+        return steps;
+    }
+
+    // Evaluate a forked tuple component on this machine's own stacks, in the environment it was forked in
+    RPALValue evaluateComponent(ASTNode[] body, Environment env) {
+        currentEnv = env;
+        controlStack.pushAll(body);
+        for (; !controlStack.isEmpty(); steps++)
+            processCurrentNodeOfControlStructure();
+        return valueStack.pop();
+    }
+
+    // A single switch dispatches every control element, so each step costs one table jump on the node type
+    private void processCurrentNodeOfControlStructure() {
+        ASTNode node = controlStack.pop();
+        switch (node.getTypeOfASTNode()) {
+            case IDENTIFIER -> handleIdentifiers(node);
+            case TAU -> createTuple(node);
+            case BETA -> handleBeta((Beta_Condition_Eval) node);
+            case GAMMA -> applyGamma((GammaSite) node);
+            case DELTA -> valueStack.push(new Closure((DeltaControlStructure) node, currentEnv)); //RULE 2
+            case ENVIRONMENT -> currentEnv = savedEnvironments.pop(); //RULE 5: the applied delta's body is done
+            case LOOP -> loopSelfTailCall((SelfTailCall) node);
+            case RECBIND -> //RULES 2 and 12 in one step
+                    valueStack.push(new EtaRecursiveFixedPoint(new Closure(((RecursiveBinding) node).getDelta(), currentEnv)));
+            case PARALLEL_TAU -> forkComponents((ParallelTuple) node);
+            case JOIN -> joinComponent();
+            case CALL -> applySaturatedCall((SaturatedCall) node);
+            case CALL_TUPLE -> applyTupleArgumentCall((TupleArgumentCall) node);
+            case SHORT_CIRCUIT -> shortCircuit((ShortCircuit) node);
+            case VERIFIED -> verifiedOperation((VerifiedOperation) node);
+            case MEMO_STORE -> memoTable.put(((MemoStore) node).getKey(), valueStack.peek());
+            case SWAP -> {
+                RPALValue top = valueStack.pop();
+                RPALValue below = valueStack.pop();
+                valueStack.push(top);
+                valueStack.push(below);
             }
+            // RULE 6
+            case PLUS, MINUS, MULT, DIV, EXP, LS, LE, GR, GE -> binaryArithmeticOperation(node);
+            case EQ, NE -> binaryLogicalEqualNotEqualOperation(node);
+            case OR, AND -> binaryLogicalOrAndOperations(node);
+            case AUG -> augTuples(node);
+            // RULE 7
+            case NOT -> not(node);
+            case NEG -> neg(node);
+            default ->
+                // Although we use ASTNodes, a CSEM will only ever see a subset of all possible ASTNodeTypes.
+                // These are the types that are NOT standardized away into lambdas and gammas. E.g. types
+                // such as LET, WHERE, WITHIN, SIMULTDEF etc will NEVER be encountered by the CSEM.
+                // What is left are the constants, whose values AST.createDeltas() has already built
+                    valueStack.push(((Literal) node).getValue());
         }
     }
 
-    // RULE 6
-    private boolean applyBinaryOperation(ASTNode rator) {
-        switch (rator.getTypeOfASTNode()) {
-            case PLUS, MINUS, MULT, DIV, EXP, LS, LE, GR, GE -> {
-                binaryArithmeticOperation(rator.getTypeOfASTNode());
-                return true;
-            }
-            case EQ, NE -> {
-                binaryLogicalEqualNotEqualOperation(rator.getTypeOfASTNode());
-                return true;
-            }
-            case OR, AND -> {
-                binaryLogicalOrAndOperations(rator.getTypeOfASTNode());
-                return true;
-            }
-            case AUG -> {
-                augTuples();
-                return true;
-            }
+    private void binaryArithmeticOperation(ASTNode node) {
+        RPALValue rand1 = valueStack.pop();
+        RPALValue rand2 = valueStack.pop();
+        if (!(rand1 instanceof IntegerValue) || !(rand2 instanceof IntegerValue))
+            printEvaluationErrorToStdOut(node.getLineNumberOfSourceFile(), "Expected two integers; was given \"" + rand1.getPrintValue() + "\", \"" + rand2.getPrintValue() + "\"");
+
+        integerOperation(node, node.getTypeOfASTNode(), (IntegerValue) rand1, (IntegerValue) rand2);
+    }
+
+    private void integerOperation(ASTNode node, ASTNodeType operator, IntegerValue value1, IntegerValue value2) {
+        if (partialEvaluation && isTooLargeToFold(operator, value1, value2))
+            printEvaluationErrorToStdOut(node.getLineNumberOfSourceFile(), "Result too large to fold");
+        try {
+            integerOperation(operator, value1, value2);
+        } catch (ArithmeticException ex) { //division by zero, or a power too large to hold
+            printEvaluationErrorToStdOut(node.getLineNumberOfSourceFile(), ex.getMessage());
+        }
+    }
+
+    // Bounds the size of the result before computing it: a single ** can take longer than any number of steps
+    private static boolean isTooLargeToFold(ASTNodeType operator, IntegerValue value1, IntegerValue value2) {
+        long bits = switch (operator) {
+            case PLUS, MINUS -> Math.max(value1.bitLength(), value2.bitLength()) + 1L;
+            case MULT -> (long) value1.bitLength() + value2.bitLength();
+            case EXP -> value2.signum() <= 0 || value1.isLong() && Math.abs(value1.getLongValue()) <= 1 ? 1
+                    : !value2.isLong() ? Long.MAX_VALUE
+                    : (value1.bitLength() + 1L) * Math.min(value2.getLongValue(), MAX_FOLDED_INTEGER_BITS + 1L);
+            default -> 0;
+        };
+        return bits > MAX_FOLDED_INTEGER_BITS;
+    }
+
+    private void integerOperation(ASTNodeType operator, IntegerValue value1, IntegerValue value2) {
+        switch (operator) {
+            case PLUS -> valueStack.push(value1.add(value2));
+            case MINUS -> valueStack.push(value1.subtract(value2));
+            case MULT -> valueStack.push(value1.multiply(value2));
+            case DIV -> valueStack.push(value1.divide(value2));
+            case EXP -> valueStack.push(value1.pow(value2));
+            case LS -> pushTruthValue(value1.compareTo(value2) < 0);
+            case LE -> pushTruthValue(value1.compareTo(value2) <= 0);
+            case GR -> pushTruthValue(value1.compareTo(value2) > 0);
+            case GE -> pushTruthValue(value1.compareTo(value2) >= 0);
+            case EQ -> pushTruthValue(value1.compareTo(value2) == 0);
+            case NE -> pushTruthValue(value1.compareTo(value2) != 0);
             default -> {
-                return false;
             }
         }
     }
 
-    private void binaryArithmeticOperation(ASTNodeType type) {
-        ASTNode rand1 = valueStack.pop();
-        ASTNode rand2 = valueStack.pop();
-        if (rand1.getTypeOfASTNode() != ASTNodeType.INTEGER || rand2.getTypeOfASTNode() != ASTNodeType.INTEGER)
-            printEvaluationErrorToStdOut(rand1.getLineNumberOfSourceFile(), "Expected two integers; was given \"" + rand1.getValueOfASTNode() + "\", \"" + rand2.getValueOfASTNode() + "\"");
-
-        ASTNode result = new ASTNode();
-        result.setTypeOfASTNode(ASTNodeType.INTEGER);
-
-        switch (type) {
-            case PLUS ->
-                    result.setValueOfASTNode(Integer.toString(Integer.parseInt(rand1.getValueOfASTNode()) + Integer.parseInt(rand2.getValueOfASTNode())));
-            case MINUS ->
-                    result.setValueOfASTNode(Integer.toString(Integer.parseInt(rand1.getValueOfASTNode()) - Integer.parseInt(rand2.getValueOfASTNode())));
-            case MULT ->
-                    result.setValueOfASTNode(Integer.toString(Integer.parseInt(rand1.getValueOfASTNode()) * Integer.parseInt(rand2.getValueOfASTNode())));
-            case DIV ->
-                    result.setValueOfASTNode(Integer.toString(Integer.parseInt(rand1.getValueOfASTNode()) / Integer.parseInt(rand2.getValueOfASTNode())));
-            case EXP ->
-                    result.setValueOfASTNode(Integer.toString((int) Math.pow(Integer.parseInt(rand1.getValueOfASTNode()), Integer.parseInt(rand2.getValueOfASTNode()))));
-            case LS -> {
-                if (Integer.parseInt(rand1.getValueOfASTNode()) < Integer.parseInt(rand2.getValueOfASTNode()))
-                    pushTrueNode();
-                else
-                    pushFalseNode();
-                return;
+    // The operands were shown to have the right types when the deltas were built; see TypeInference
+    private void verifiedOperation(VerifiedOperation node) {
+        switch (node.getOperator()) {
+            case NOT -> pushTruthValue(valueStack.pop() == TruthValue.FALSE);
+            case NEG -> valueStack.push(((IntegerValue) valueStack.pop()).negate());
+            case OR -> {
+                RPALValue rand1 = valueStack.pop();
+                RPALValue rand2 = valueStack.pop();
+                pushTruthValue(rand1 == TruthValue.TRUE || rand2 == TruthValue.TRUE);
             }
-            case LE -> {
-                if (Integer.parseInt(rand1.getValueOfASTNode()) <= Integer.parseInt(rand2.getValueOfASTNode()))
-                    pushTrueNode();
-                else
-                    pushFalseNode();
-                return;
+            case AND -> {
+                RPALValue rand1 = valueStack.pop();
+                RPALValue rand2 = valueStack.pop();
+                pushTruthValue(rand1 == TruthValue.TRUE && rand2 == TruthValue.TRUE);
             }
-            case GR -> {
-                if (Integer.parseInt(rand1.getValueOfASTNode()) > Integer.parseInt(rand2.getValueOfASTNode()))
-                    pushTrueNode();
-                else
-                    pushFalseNode();
-                return;
-            }
-            case GE -> {
-                if (Integer.parseInt(rand1.getValueOfASTNode()) >= Integer.parseInt(rand2.getValueOfASTNode()))
-                    pushTrueNode();
-                else
-                    pushFalseNode();
-                return;
+            case AUG -> {
+                Tuple rand1 = (Tuple) valueStack.pop();
+                valueStack.push(rand1.append(valueStack.pop()));
             }
             default -> {
+                IntegerValue rand1 = (IntegerValue) valueStack.pop();
+                integerOperation(node, node.getOperator(), rand1, (IntegerValue) valueStack.pop());
             }
         }
-        valueStack.push(result);
     }
 
-    private void binaryLogicalEqualNotEqualOperation(ASTNodeType type) {
-        ASTNode rand1 = valueStack.pop();
-        ASTNode rand2 = valueStack.pop();
-
-        if (rand1.getTypeOfASTNode() == ASTNodeType.TRUE || rand1.getTypeOfASTNode() == ASTNodeType.FALSE) {
-            if (rand2.getTypeOfASTNode() != ASTNodeType.TRUE && rand2.getTypeOfASTNode() != ASTNodeType.FALSE)
-                printEvaluationErrorToStdOut(rand1.getLineNumberOfSourceFile(), "Cannot compare dissimilar types; was given \"" + rand1.getValueOfASTNode() + "\", \"" + rand2.getValueOfASTNode() + "\"");
-            compareTruthValues(rand1, rand2, type);
-            return;
-        }
+    private void binaryLogicalEqualNotEqualOperation(ASTNode node) {
+        RPALValue rand1 = valueStack.pop();
+        RPALValue rand2 = valueStack.pop();
 
-        if (rand1.getTypeOfASTNode() != rand2.getTypeOfASTNode())
-            printEvaluationErrorToStdOut(rand1.getLineNumberOfSourceFile(), "Cannot compare dissimilar types; was given \"" + rand1.getValueOfASTNode() + "\", \"" + rand2.getValueOfASTNode() + "\"");
+        if (rand1.getClass() != rand2.getClass())
+            printEvaluationErrorToStdOut(node.getLineNumberOfSourceFile(), "Cannot compare dissimilar types; was given \"" + rand1.getPrintValue() + "\", \"" + rand2.getPrintValue() + "\"");
 
-        if (rand1.getTypeOfASTNode() == ASTNodeType.STRING)
-            compareStrings(rand1, rand2, type);
-        else if (rand1.getTypeOfASTNode() == ASTNodeType.INTEGER)
-            compareIntegers(rand1, rand2, type);
+        boolean equal = false;
+        if (rand1 instanceof TruthValue)
+            equal = rand1 == rand2; //there is only one true and one false
+        else if (rand1 instanceof StringValue)
+            equal = ((StringValue) rand1).contentEquals((StringValue) rand2);
+        else if (rand1 instanceof IntegerValue)
+            equal = ((IntegerValue) rand1).compareTo((IntegerValue) rand2) == 0;
         else
-            printEvaluationErrorToStdOut(rand1.getLineNumberOfSourceFile(), "Don't know how to " + type + " \"" + rand1.getValueOfASTNode() + "\", \"" + rand2.getValueOfASTNode() + "\"");
+            printEvaluationErrorToStdOut(node.getLineNumberOfSourceFile(), "Don't know how to " + node.getTypeOfASTNode() + " \"" + rand1.getPrintValue() + "\", \"" + rand2.getPrintValue() + "\"");
 
+        pushTruthValue(node.getTypeOfASTNode() == ASTNodeType.EQ ? equal : !equal);
     }
 
-    private void compareTruthValues(ASTNode rand1, ASTNode rand2, ASTNodeType type) {
-        if (rand1.getTypeOfASTNode() == rand2.getTypeOfASTNode())
-            if (type == ASTNodeType.EQ)
-                pushTrueNode();
-            else
-                pushFalseNode();
-        else if (type == ASTNodeType.EQ)
-            pushFalseNode();
+    private void binaryLogicalOrAndOperations(ASTNode node) {
+        RPALValue rand1 = valueStack.pop();
+        RPALValue rand2 = valueStack.pop();
+
+        if (!(rand1 instanceof TruthValue) || !(rand2 instanceof TruthValue))
+            printEvaluationErrorToStdOut(node.getLineNumberOfSourceFile(), "Don't know how to " + node.getTypeOfASTNode() + " \"" + rand1.getPrintValue() + "\", \"" + rand2.getPrintValue() + "\"");
+
+        if (node.getTypeOfASTNode() == ASTNodeType.OR)
+            pushTruthValue(rand1 == TruthValue.TRUE || rand2 == TruthValue.TRUE);
         else
-            pushTrueNode();
+            pushTruthValue(rand1 == TruthValue.TRUE && rand2 == TruthValue.TRUE);
     }
 
-    private void compareStrings(ASTNode rand1, ASTNode rand2, ASTNodeType type) {
-        if (rand1.getValueOfASTNode().equals(rand2.getValueOfASTNode()))
-            if (type == ASTNodeType.EQ)
-                pushTrueNode();
-            else
-                pushFalseNode();
-        else if (type == ASTNodeType.EQ)
-            pushFalseNode();
-        else
-            pushTrueNode();
+    private void shortCircuit(ShortCircuit node) {
+        RPALValue left = valueStack.pop();
+        if (left == node.getDecidingValue()) {
+            valueStack.push(left);
+            rightOperandsSkipped++;
+        } else if (left instanceof TruthValue) {
+            controlStack.pushAll(node.getRightBody()); //the result is the right operand, a truth value
+            rightOperandsEvaluated++;
+        } else {
+            //let the operator report the error as usual: it wants the left operand on top of the right one
+            valueStack.push(left);
+            controlStack.push(node.getOperator());
+            controlStack.push(SWAP);
+            controlStack.pushAll(node.getRightBody());
+        }
     }
 
-    private void compareIntegers(ASTNode rand1, ASTNode rand2, ASTNodeType type) {
-        if (Integer.parseInt(rand1.getValueOfASTNode()) == Integer.parseInt(rand2.getValueOfASTNode()))
-            if (type == ASTNodeType.EQ)
-                pushTrueNode();
-            else
-                pushFalseNode();
-        else if (type == ASTNodeType.EQ)
-            pushFalseNode();
-        else
-            pushTrueNode();
+    private void augTuples(ASTNode node) {
+        RPALValue rand1 = valueStack.pop();
+        RPALValue rand2 = valueStack.pop();
+
+        if (!(rand1 instanceof Tuple))
+            printEvaluationErrorToStdOut(node.getLineNumberOfSourceFile(), "Cannot augment a non-tuple \"" + rand1.getPrintValue() + "\"");
+
+        //values are shared between environments, so aug builds a new tuple instead of extending rand1
+        valueStack.push(((Tuple) rand1).append(rand2));
     }
 
-    private void binaryLogicalOrAndOperations(ASTNodeType type) {
-        ASTNode rand1 = valueStack.pop();
-        ASTNode rand2 = valueStack.pop();
+    private void not(ASTNode node) {
+        RPALValue rand = valueStack.pop();
+        if (!(rand instanceof TruthValue))
+            printEvaluationErrorToStdOut(node.getLineNumberOfSourceFile(), "Expecting a truthvalue; was given \"" + rand.getPrintValue() + "\"");
 
-        if ((rand1.getTypeOfASTNode() == ASTNodeType.TRUE || rand1.getTypeOfASTNode() == ASTNodeType.FALSE) &&
-                (rand2.getTypeOfASTNode() == ASTNodeType.TRUE || rand2.getTypeOfASTNode() == ASTNodeType.FALSE)) {
-            orAndTruthValues(rand1, rand2, type);
-            return;
-        }
+        pushTruthValue(rand == TruthValue.FALSE);
+    }
+
+    private void neg(ASTNode node) {
+        RPALValue rand = valueStack.pop();
+        if (!(rand instanceof IntegerValue))
+            printEvaluationErrorToStdOut(node.getLineNumberOfSourceFile(), "Expecting a truthvalue; was given \"" + rand.getPrintValue() + "\"");
 
-        printEvaluationErrorToStdOut(rand1.getLineNumberOfSourceFile(), "Don't know how to " + type + " \"" + rand1.getValueOfASTNode() + "\", \"" + rand2.getValueOfASTNode() + "\"");
+        valueStack.push(((IntegerValue) rand).negate());
     }
 
-    private void orAndTruthValues(ASTNode rand1, ASTNode rand2, ASTNodeType type) {
-        if (type == ASTNodeType.OR) {
-            if (rand1.getTypeOfASTNode() == ASTNodeType.TRUE || rand2.getTypeOfASTNode() == ASTNodeType.TRUE)
-                pushTrueNode();
-            else
-                pushFalseNode();
-        } else {
-            if (rand1.getTypeOfASTNode() == ASTNodeType.TRUE && rand2.getTypeOfASTNode() == ASTNodeType.TRUE)
-                pushTrueNode();
-            else
-                pushFalseNode();
+    //RULE 3
+    private void applyGamma(GammaSite site) {
+        RPALValue rator = valueStack.pop();
+        RPALValue rand = valueStack.pop();
+
+        Object target = rator.getCallTarget();
+        GammaSite.RatorKind kind = site.lookup(target);
+        if (kind == null) { //inline cache miss: classify the rator the long way and remember it
+            kind = classifyRator(rator);
+            if (kind == null)
+                printEvaluationErrorToStdOut(site.getLineNumberOfSourceFile(), "Don't know how to evaluate \"" + rator.getPrintValue() + "\"");
+            site.record(target, kind);
+            if (site.getMisses() == 1)
+                gammaSites.add(site);
         }
-    }
 
-    private void augTuples() {
-        ASTNode rand1 = valueStack.pop();
-        ASTNode rand2 = valueStack.pop();
+        switch (kind) {
+            case CLOSURE -> applyClosure(site, (Closure) rator, rand);
+            case ETA -> {
+                EtaRecursiveFixedPoint eta = (EtaRecursiveFixedPoint) rator;
+                DeltaControlStructure[] chain = eta.getClosure().getDelta().getCurriedChain();
+                //chain[0] binds the function's own name, so one argument is all of them only for a function of
+                //one parameter; a partial application builds a closure, which has no result to cache
+                if (memoTable != null && eta.getClosure().getDelta().isMemoizable() && chain.length - 1 == 1) {
+                    valueStack.push(rand);
+                    callRecursive(site, eta, 1);
+                    return;
+                }
+                if (eta.getUnrolledClosure() != null) { //an ordinary call through the letrec cell
+                    applyClosure(site, eta.getUnrolledClosure(), rand);
+                    return;
+                }
+                //RULE 13
+                //push back the rand, the eta and then the closure it contains
+                valueStack.push(rand);
+                valueStack.push(rator);
+                valueStack.push(((EtaRecursiveFixedPoint) rator).getClosure());
+                //push back two gammas (one for the eta and one for the closure)
+                controlStack.push(site);
+                controlStack.push(site);
+            }
+            case TUPLE -> tupleSelection(site, (Tuple) rator, rand);
+            case PRIMITIVE -> {
+                if (!evaluatePredefinedFunctionsOfRPAL(site, (PrimitiveFunction) rator, rand))
+                    printEvaluationErrorToStdOut(site.getLineNumberOfSourceFile(), "Don't know how to evaluate \"" + rator.getPrintValue() + "\"");
+            }
+        }
+    }
 
-        if (rand1.getTypeOfASTNode() != ASTNodeType.TUPLE)
-            printEvaluationErrorToStdOut(rand1.getLineNumberOfSourceFile(), "Cannot augment a non-tuple \"" + rand1.getValueOfASTNode() + "\"");
+    private GammaSite.RatorKind classifyRator(RPALValue rator) {
+        if (rator instanceof Closure)
+            return GammaSite.RatorKind.CLOSURE;
+        if (rator instanceof EtaRecursiveFixedPoint)
+            return GammaSite.RatorKind.ETA;
+        if (rator instanceof Tuple)
+            return GammaSite.RatorKind.TUPLE;
+        if (rator instanceof PrimitiveFunction)
+            return GammaSite.RatorKind.PRIMITIVE;
+        return null;
+    }
+
+    private void applyClosure(GammaSite site, Closure closure, RPALValue rand) {
+        DeltaControlStructure nextDelta = closure.getDelta();
+        recordInvocation(nextDelta);
+
+        //A Closure carries the environment in effect when its lambda was evaluated (search for 'RULE 2' in this
+        //file to see where it's done)
+        //We construct a new environment here that will contain all the bindings (single or multiple)
+        //required by the delta. This new environment will link back to the environment carried by the Closure.
+        Environment newEnv = Environment.create(closure.getLinkedEnv(), nextDelta.getBoundVars().size());
+        bindArguments(site, nextDelta, newEnv, rand);
+        enter(nextDelta, newEnv);
+    }
+
+    // Run the delta's body in the new environment, returning to the current one afterwards
+    private void enter(DeltaControlStructure delta, Environment newEnv) {
+        //a call in tail position finds the caller's marker right on top: the caller's own environment is never
+        //needed again, so no marker is pushed and a loop written as tail recursion runs in constant space
+        if (controlStack.peek() != ENVIRONMENT_MARKER) {
+            savedEnvironments.push(currentEnv);
+            controlStack.push(ENVIRONMENT_MARKER);
+        }
+        controlStack.pushAll(delta.getBody());
+        currentEnv = newEnv;
+    }
 
-        ASTNode childNode = rand1.getChildOfASTNode();
-        if (childNode == null)
-            rand1.setChildOfASTNode(rand2);
+    private void bindArguments(ASTNode node, DeltaControlStructure delta, Environment newEnv, RPALValue rand) {
+        //RULE 4
+        if (delta.getBoundVars().size() == 1) {
+            newEnv.addMapping(delta.getBoundVars().get(0), rand);
+        }
+        //RULE 11
         else {
-            while (childNode.getSiblingOfASTNode() != null)
-                childNode = childNode.getSiblingOfASTNode();
-            childNode.setSiblingOfASTNode(rand2);
+            if (!(rand instanceof Tuple))
+                printEvaluationErrorToStdOut(node.getLineNumberOfSourceFile(), "Expected a tuple; was given \"" + rand.getPrintValue() + "\"");
+
+            for (int i = 0; i < delta.getBoundVars().size(); i++) {
+                newEnv.addMapping(delta.getBoundVars().get(i), ((Tuple) rand).get(i + 1)); //+ 1 coz tuple indexing starts at 1
+            }
         }
-        rand2.setSiblingOfASTNode(null);
+    }
 
-        valueStack.push(rand1);
+    // Bind the n arguments on the value stack, a1 on top, for the deltas chain[from] to chain[to - 1] in one
+    // frame. A later parameter with the same name as an earlier one replaces it, as the inner lambda's would
+    private Environment bindAllArguments(ASTNode node, DeltaControlStructure[] chain, int from, int to, Environment parent) {
+        int slots = 0;
+        for (int i = from; i < to; i++)
+            slots += chain[i].getBoundVars().size();
+        Environment newEnv = Environment.create(parent, slots);
+        for (int i = from; i < to; i++) {
+            recordInvocation(chain[i]);
+            bindArguments(node, chain[i], newEnv, valueStack.pop());
+        }
+        return newEnv;
     }
 
-    // RULE 7
-    private boolean applyUnaryOperation(ASTNode rator) {
-        switch (rator.getTypeOfASTNode()) {
-            case NOT -> {
-                not();
-                return true;
+    private void applySaturatedCall(SaturatedCall node) {
+        RPALValue rator = valueStack.pop();
+        int n = node.getArity();
+        if (rator instanceof Closure) {
+            Closure closure = (Closure) rator;
+            DeltaControlStructure[] chain = closure.getDelta().getCurriedChain();
+            if (chain.length >= n) {
+                enter(chain[n - 1], bindAllArguments(node, chain, 0, n, closure.getLinkedEnv()));
+                return;
             }
-            case NEG -> {
-                neg();
-                return true;
+        } else if (rator instanceof EtaRecursiveFixedPoint) {
+            if (((EtaRecursiveFixedPoint) rator).getUnrolledClosure() != null &&
+                    ((EtaRecursiveFixedPoint) rator).getClosure().getDelta().getCurriedArity() > n) {
+                callRecursive(node, (EtaRecursiveFixedPoint) rator, n);
+                return;
             }
-            default -> {
+        }
+
+        //apply it one argument at a time, exactly as the gammas this call replaced would have
+        valueStack.push(rator);
+        GammaSite[] sites = node.getSites();
+        for (int i = sites.length - 1; i >= 0; i--)
+            controlStack.push(sites[i]);
+    }
+
+    // Apply a 'rec' function to its n arguments (on the value stack, a1 on top), binding them in one frame above
+    // its letrec cell. A memoized function given all its arguments may find its result in the cache instead
+    private void callRecursive(ASTNode node, EtaRecursiveFixedPoint eta, int n) {
+        DeltaControlStructure[] chain = eta.getClosure().getDelta().getCurriedChain();
+        if (memoTable != null && eta.getClosure().getDelta().isMemoizable() && n == chain.length - 1 &&
+                findMemoizedResult(eta, n))
+            return;
+
+        enter(chain[n], bindAllArguments(node, chain, 1, n + 1, eta.getUnrolledClosure().getLinkedEnv()));
+    }
+
+    /**
+     * Look the call up in the memo table. On a hit the n arguments are replaced by the result; on a miss a
+     * {@link MemoStore} is pushed, to be reached with the result once the call's body is done.
+     *
+     * @return true if the result was found
+     */
+    private boolean findMemoizedResult(RPALValue function, int n) {
+        RPALValue[] arguments = new RPALValue[n];
+        for (int i = 0; i < n; i++) {
+            arguments[i] = valueStack.get(valueStack.size() - 1 - i);
+            if (!MemoTable.isCacheable(arguments[i])) //a function argument might print
                 return false;
+        }
+        MemoTable.Key key = new MemoTable.Key(function, arguments);
+        RPALValue result = memoTable.get(key);
+        if (result == null) {
+            controlStack.push(new MemoStore(key));
+            return false;
+        }
+        for (int i = 0; i < n; i++)
+            valueStack.pop();
+        valueStack.push(result);
+        return true;
+    }
+
+    private void applyTupleArgumentCall(TupleArgumentCall node) {
+        RPALValue rator = valueStack.pop();
+        int width = node.getWidth();
+        if (rator instanceof Closure) {
+            Closure closure = (Closure) rator;
+            DeltaControlStructure delta = closure.getDelta();
+            if (delta.getBoundVars().size() == width) {
+                recordInvocation(delta);
+                enter(delta, bindElements(delta, width, closure.getLinkedEnv()));
+                return;
+            }
+        } else if (rator instanceof EtaRecursiveFixedPoint) {
+            //an ordinary call through the letrec cell, as in applySaturatedCall()
+            Closure unrolled = ((EtaRecursiveFixedPoint) rator).getUnrolledClosure();
+            DeltaControlStructure recDelta = ((EtaRecursiveFixedPoint) rator).getClosure().getDelta();
+            //a memoized function is keyed on the tuple, so it gets one
+            if (unrolled != null && unrolled.getDelta().getBoundVars().size() == width &&
+                    !(memoTable != null && recDelta.isMemoizable())) {
+                recordInvocation(unrolled.getDelta());
+                enter(unrolled.getDelta(), bindElements(unrolled.getDelta(), width, unrolled.getLinkedEnv()));
+                return;
             }
         }
-    }
 
-    private void not() {
-        ASTNode rand = valueStack.pop();
-        if (rand.getTypeOfASTNode() != ASTNodeType.TRUE && rand.getTypeOfASTNode() != ASTNodeType.FALSE)
-            printEvaluationErrorToStdOut(rand.getLineNumberOfSourceFile(), "Expecting a truthvalue; was given \"" + rand.getValueOfASTNode() + "\"");
+        //the rator needs the tuple itself: build it and apply the rator to it through the gamma
+        RPALValue[] elements = new RPALValue[width];
+        for (int i = 0; i < width; i++)
+            elements[i] = valueStack.pop();
+        valueStack.push(Tuple.of(elements));
+        valueStack.push(rator);
+        controlStack.push(node.getSite());
+    }
 
-        if (rand.getTypeOfASTNode() == ASTNodeType.TRUE)
-            pushFalseNode();
-        else
-            pushTrueNode();
+    // RULE 11 for a tuple that was never built: its elements are on the value stack, the first one on top
+    private Environment bindElements(DeltaControlStructure delta, int width, Environment parent) {
+        Environment newEnv = Environment.create(parent, width);
+        for (int i = 0; i < width; i++)
+            newEnv.addMapping(delta.getBoundVars().get(i), valueStack.pop());
+        return newEnv;
     }
 
-    private void neg() {
-        ASTNode rand = valueStack.pop();
-        if (rand.getTypeOfASTNode() != ASTNodeType.INTEGER)
-            printEvaluationErrorToStdOut(rand.getLineNumberOfSourceFile(), "Expecting a truthvalue; was given \"" + rand.getValueOfASTNode() + "\"");
+    // The current environment holds the function's parameters, in one frame or one per argument depending on how
+    // it was called, since the call is in its body and outside any nested lambda. Above them is the frame that
+    // binds the function's own name, which no parameter rebinds
+    private void loopSelfTailCall(SelfTailCall node) {
+        DeltaControlStructure[] deltas = node.getDeltas();
+        Environment recEnv = currentEnv.frameBinding(node.getFunctionName());
+        controlStack.pushAll(deltas[deltas.length - 1].getBody());
+        if (node.passesTupleElements()) {
+            recordInvocation(deltas[0]);
+            currentEnv = bindElements(deltas[0], deltas[0].getBoundVars().size(), recEnv);
+        } else
+            currentEnv = bindAllArguments(node, deltas, 0, deltas.length, recEnv);
+    }
 
-        ASTNode result = new ASTNode();
-        result.setTypeOfASTNode(ASTNodeType.INTEGER);
-        result.setValueOfASTNode(Integer.toString(-1 * Integer.parseInt(rand.getValueOfASTNode())));
-        valueStack.push(result);
+    // Counted per delta index rather than on the node, since every closure over a delta is a node of its own
+    private void recordInvocation(DeltaControlStructure delta) {
+        if (deltaInvocationCounts[delta.getIndex()]++ == 0)
+            deltaNames[delta.getIndex()] = delta.getValueOfASTNode();
     }
 
-    //RULE 3
-    private void applyGamma(DeltaControlStructure currentDelta, ASTNode node, Environment currentEnv, Stack<ASTNode> currentControlStack) {
-        ASTNode rator = valueStack.pop();
-        ASTNode rand = valueStack.pop();
-
-        if (rator.getTypeOfASTNode() == ASTNodeType.DELTA) {
-            DeltaControlStructure nextDelta = (DeltaControlStructure) rator;
-
-            //DeltaControlStructure has a link to the environment in effect when it is pushed on to the value stack (search
-            //for 'RULE 2' in this file to see where it's done)
-            //We construct a new environment here that will contain all the bindings (single or multiple)
-            //required by this DeltaControlStructure. This new environment will link back to the environment carried by the DeltaControlStructure.
-            Environment newEnv = new Environment();
-            newEnv.setParent(nextDelta.getLinkedEnv());
-
-            //RULE 4
-            if (nextDelta.getBoundVars().size() == 1) {
-                newEnv.addMapping(nextDelta.getBoundVars().get(0), rand);
-            }
-            //RULE 11
-            else {
-                if (rand.getTypeOfASTNode() != ASTNodeType.TUPLE)
-                    printEvaluationErrorToStdOut(rand.getLineNumberOfSourceFile(), "Expected a tuple; was given \"" + rand.getValueOfASTNode() + "\"");
+    /**
+     * Print how many times each delta was applied, most frequently applied first.
+     * Deltas at or above {@link #HOT_DELTA_THRESHOLD} are marked as hot. Then print the inline cache hits and
+     * misses of the busiest application sites, when memoization is on, how often the memo table was hit and, when
+     * tuples are evaluated in parallel, how many components were forked.
+     */
+    public void printStatistics(PrintStream out) {
+        out.println("Delta invocations:");
+        Integer[] order = new Integer[deltaInvocationCounts.length];
+        for (int i = 0; i < order.length; i++)
+            order[i] = i;
+        Arrays.sort(order, (a, b) -> Long.compare(deltaInvocationCounts[b], deltaInvocationCounts[a]));
+        for (int index : order) {
+            if (deltaInvocationCounts[index] == 0)
+                break;
+            out.println("  " + deltaNames[index] + " " + deltaInvocationCounts[index] +
+                    (deltaInvocationCounts[index] >= HOT_DELTA_THRESHOLD ? " (hot)" : ""));
+        }
 
-                for (int i = 0; i < nextDelta.getBoundVars().size(); i++) {
-                    newEnv.addMapping(nextDelta.getBoundVars().get(i), getNthTupleChild((Tuple) rand, i + 1)); //+ 1 coz tuple indexing starts at 1
-                }
-            }
+        out.println("Call sites:");
+        long hits = 0, misses = 0;
+        for (GammaSite site : gammaSites) {
+            hits += site.getHits();
+            misses += site.getMisses();
+        }
+        out.println("  all " + gammaSites.size() + " sites: " + hits + " inline cache hits, " + misses + " misses");
+        List<GammaSite> busiest = new ArrayList<GammaSite>(gammaSites);
+        busiest.sort((a, b) -> Long.compare(b.getHits() + b.getMisses(), a.getHits() + a.getMisses()));
+        for (GammaSite site : busiest.subList(0, Math.min(CALL_SITES_SHOWN, busiest.size())))
+            out.println("  line " + site.getLineNumberOfSourceFile() + ": " + site.getHits() + " hits, " +
+                    site.getMisses() + " misses (" + site.getCacheState() + ")");
+
+        if (memoTable != null) {
+            long lookups = memoTable.getHits() + memoTable.getMisses();
+            out.println("Memoization:");
+            out.println("  " + memoTable.getHits() + " hits, " + memoTable.getMisses() + " misses (" +
+                    (lookups == 0 ? 0 : 100 * memoTable.getHits() / lookups) + "% hit rate), " +
+                    memoTable.getEvictions() + " evictions, " + memoTable.size() + " results kept");
+        }
+
+        if (shortCircuitEvaluation) {
+            out.println("Short circuits:");
+            out.println("  " + rightOperandsSkipped + " right operands skipped, " + rightOperandsEvaluated +
+                    " evaluated");
+        }
+
+        if (parallelEvaluation) {
+            out.println("Parallel tuples:");
+            out.println("  " + componentsForked + " components forked, " + componentsKeptInPlace +
+                    " evaluated in place");
+        }
+    }
 
-            processControlStructures(nextDelta, newEnv);
-        } else if (rator.getTypeOfASTNode() == ASTNodeType.YSTAR) {
-            //RULE 12
-            if (rand.getTypeOfASTNode() != ASTNodeType.DELTA)
-                printEvaluationErrorToStdOut(rand.getLineNumberOfSourceFile(), "Expected a DeltaControlStructure; was given \"" + rand.getValueOfASTNode() + "\"");
-
-            EtaRecursiveFixedPoint etaNode = new EtaRecursiveFixedPoint();
-            etaNode.setDelta((DeltaControlStructure) rand);
-            valueStack.push(etaNode);
-        } else if (rator.getTypeOfASTNode() == ASTNodeType.ETA) {
-            //RULE 13
-            //push back the rand, the eta and then the delta it contains
-            valueStack.push(rand);
-            valueStack.push(rator);
-            valueStack.push(((EtaRecursiveFixedPoint) rator).getDelta());
-            //push back two gammas (one for the eta and one for the delta)
-            currentControlStack.push(node);
-            currentControlStack.push(node);
-        } else if (rator.getTypeOfASTNode() == ASTNodeType.TUPLE) {
-            tupleSelection((Tuple) rator, rand);
-        } else if (!evaluatePredefinedFunctionsOfRPAL(rator, rand, currentControlStack))
-            printEvaluationErrorToStdOut(rator.getLineNumberOfSourceFile(), "Don't know how to evaluate \"" + rator.getValueOfASTNode() + "\"");
-    }
-
-    private boolean evaluatePredefinedFunctionsOfRPAL(ASTNode rator, ASTNode rand, Stack<ASTNode> currentControlStack) {
-        switch (rator.getValueOfASTNode()) {
-            case "Isinteger" -> {
-                checkTypeAndPushTrueOrFalse(rand, ASTNodeType.INTEGER);
+    private boolean evaluatePredefinedFunctionsOfRPAL(ASTNode node, PrimitiveFunction rator, RPALValue rand) {
+        switch (rator.getKind()) {
+            case Y_STAR -> {
+                //RULE 12
+                if (!(rand instanceof Closure))
+                    printEvaluationErrorToStdOut(node.getLineNumberOfSourceFile(), "Expected a DeltaControlStructure; was given \"" + rand.getPrintValue() + "\"");
+                valueStack.push(new EtaRecursiveFixedPoint((Closure) rand));
                 return true;
             }
-            case "Isstring" -> {
-                checkTypeAndPushTrueOrFalse(rand, ASTNodeType.STRING);
+            case ISINTEGER -> {
+                pushTruthValue(rand instanceof IntegerValue);
                 return true;
             }
-            case "Isdummy" -> {
-                checkTypeAndPushTrueOrFalse(rand, ASTNodeType.DUMMY);
+            case ISSTRING -> {
+                pushTruthValue(rand instanceof StringValue);
                 return true;
             }
-            case "Isfunction" -> {
-                checkTypeAndPushTrueOrFalse(rand, ASTNodeType.DELTA);
+            case ISDUMMY -> {
+                pushTruthValue(rand == DummyValue.DUMMY);
                 return true;
             }
-            case "Istuple" -> {
-                checkTypeAndPushTrueOrFalse(rand, ASTNodeType.TUPLE);
+            case ISFUNCTION -> {
+                pushTruthValue(rand instanceof Closure);
                 return true;
             }
-            case "Istruthvalue" -> {
-                if (rand.getTypeOfASTNode() == ASTNodeType.TRUE || rand.getTypeOfASTNode() == ASTNodeType.FALSE)
-                    pushTrueNode();
-                else
-                    pushFalseNode();
+            case ISTUPLE -> {
+                pushTruthValue(rand instanceof Tuple);
                 return true;
             }
-            case "Stem" -> {
-                stem(rand);
+            case ISTRUTHVALUE -> {
+                pushTruthValue(rand instanceof TruthValue);
                 return true;
             }
-            case "Stern" -> {
-                stern(rand);
+            case STEM -> {
+                stem(node, rand);
                 return true;
             }
-            case "Conc", "conc" -> { //typos
-                conc(rand, currentControlStack);
+            case STERN -> {
+                stern(node, rand);
                 return true;
             }
-            case "Print", "print" -> { //typos
+            case CONC -> {
+                conc(node, rand);
+                return true;
+            }
+            case PRINT -> {
                 printNodeValue(rand);
-                pushDummyNode();
+                valueStack.push(DummyValue.DUMMY);
                 return true;
             }
-            case "ItoS" -> {
-                itos(rand);
+            case ITOS -> {
+                itos(node, rand);
                 return true;
             }
-            case "Order" -> {
-                order(rand);
+            case ORDER -> {
+                order(node, rand);
                 return true;
             }
-            case "Null" -> {
-                isNullTuple(rand);
+            case NULL -> {
+                isNullTuple(node, rand);
                 return true;
             }
             default -> {
@@ -401,133 +727,74 @@ public class CSE_Machine {
         }
     }
 
-    private void checkTypeAndPushTrueOrFalse(ASTNode rand, ASTNodeType type) {
-        if (rand.getTypeOfASTNode() == type)
-            pushTrueNode();
-        else
-            pushFalseNode();
-    }
-
-    private void pushTrueNode() {
-        ASTNode trueNode = new ASTNode();
-        trueNode.setTypeOfASTNode(ASTNodeType.TRUE);
-        trueNode.setValueOfASTNode("true");
-        valueStack.push(trueNode);
+    private void pushTruthValue(boolean value) {
+        valueStack.push(TruthValue.valueOf(value));
     }
 
-    private void pushFalseNode() {
-        ASTNode falseNode = new ASTNode();
-        falseNode.setTypeOfASTNode(ASTNodeType.FALSE);
-        falseNode.setValueOfASTNode("false");
-        valueStack.push(falseNode);
-    }
-
-    private void pushDummyNode() {
-        ASTNode falseNode = new ASTNode();
-        falseNode.setTypeOfASTNode(ASTNodeType.DUMMY);
-        valueStack.push(falseNode);
-    }
-
-    private void stem(ASTNode rand) {
-        if (rand.getTypeOfASTNode() != ASTNodeType.STRING)
-            printEvaluationErrorToStdOut(rand.getLineNumberOfSourceFile(), "Expected a string; was given \"" + rand.getValueOfASTNode() + "\"");
-
-        if (rand.getValueOfASTNode().isEmpty())
-            rand.setValueOfASTNode("");
-        else
-            rand.setValueOfASTNode(rand.getValueOfASTNode().substring(0, 1));
+    private void stem(ASTNode node, RPALValue rand) {
+        if (!(rand instanceof StringValue))
+            printEvaluationErrorToStdOut(node.getLineNumberOfSourceFile(), "Expected a string; was given \"" + rand.getPrintValue() + "\"");
 
-        valueStack.push(rand);
+        valueStack.push(((StringValue) rand).first());
     }
 
-    private void stern(ASTNode rand) {
-        if (rand.getTypeOfASTNode() != ASTNodeType.STRING)
-            printEvaluationErrorToStdOut(rand.getLineNumberOfSourceFile(), "Expected a string; was given \"" + rand.getValueOfASTNode() + "\"");
-
-        if (rand.getValueOfASTNode().isEmpty() || rand.getValueOfASTNode().length() == 1)
-            rand.setValueOfASTNode("");
-        else
-            rand.setValueOfASTNode(rand.getValueOfASTNode().substring(1));
+    private void stern(ASTNode node, RPALValue rand) {
+        if (!(rand instanceof StringValue))
+            printEvaluationErrorToStdOut(node.getLineNumberOfSourceFile(), "Expected a string; was given \"" + rand.getPrintValue() + "\"");
 
-        valueStack.push(rand);
+        valueStack.push(((StringValue) rand).rest());
     }
 
-    private void conc(ASTNode rand1, Stack<ASTNode> currentControlStack) {
-        currentControlStack.pop();
-        ASTNode rand2 = valueStack.pop();
-        if (rand1.getTypeOfASTNode() != ASTNodeType.STRING || rand2.getTypeOfASTNode() != ASTNodeType.STRING)
-            printEvaluationErrorToStdOut(rand1.getLineNumberOfSourceFile(), "Expected two strings; was given \"" + rand1.getValueOfASTNode() + "\", \"" + rand2.getValueOfASTNode() + "\"");
+    private void conc(ASTNode node, RPALValue rand1) {
+        controlStack.pop();
+        RPALValue rand2 = valueStack.pop();
+        if (!(rand1 instanceof StringValue) || !(rand2 instanceof StringValue))
+            printEvaluationErrorToStdOut(node.getLineNumberOfSourceFile(), "Expected two strings; was given \"" + rand1.getPrintValue() + "\", \"" + rand2.getPrintValue() + "\"");
 
-        ASTNode result = new ASTNode();
-        result.setTypeOfASTNode(ASTNodeType.STRING);
-        result.setValueOfASTNode(rand1.getValueOfASTNode() + rand2.getValueOfASTNode());
-
-        valueStack.push(result);
+        if (partialEvaluation &&
+                (long) ((StringValue) rand1).length() + ((StringValue) rand2).length() > MAX_FOLDED_STRING_LENGTH)
+            printEvaluationErrorToStdOut(node.getLineNumberOfSourceFile(), "Result too large to fold");
+        valueStack.push(((StringValue) rand1).concat((StringValue) rand2));
     }
 
-    private void itos(ASTNode rand) {
-        if (rand.getTypeOfASTNode() != ASTNodeType.INTEGER)
-            printEvaluationErrorToStdOut(rand.getLineNumberOfSourceFile(), "Expected an integer; was given \"" + rand.getValueOfASTNode() + "\"");
+    private void itos(ASTNode node, RPALValue rand) {
+        if (!(rand instanceof IntegerValue))
+            printEvaluationErrorToStdOut(node.getLineNumberOfSourceFile(), "Expected an integer; was given \"" + rand.getPrintValue() + "\"");
 
-        rand.setTypeOfASTNode(ASTNodeType.STRING); //all values are stored internally as strings, so nothing else to do
-        valueStack.push(rand);
+        valueStack.push(new StringValue(rand.getPrintValue()));
     }
 
-    private void order(ASTNode rand) {
-        if (rand.getTypeOfASTNode() != ASTNodeType.TUPLE)
-            printEvaluationErrorToStdOut(rand.getLineNumberOfSourceFile(), "Expected a tuple; was given \"" + rand.getValueOfASTNode() + "\"");
+    private void order(ASTNode node, RPALValue rand) {
+        if (!(rand instanceof Tuple))
+            printEvaluationErrorToStdOut(node.getLineNumberOfSourceFile(), "Expected a tuple; was given \"" + rand.getPrintValue() + "\"");
 
-        ASTNode result = new ASTNode();
-        result.setTypeOfASTNode(ASTNodeType.INTEGER);
-        result.setValueOfASTNode(Integer.toString(getNumChildren(rand)));
-
-        valueStack.push(result);
+        valueStack.push(IntegerValue.valueOf(((Tuple) rand).size()));
     }
 
-    private void isNullTuple(ASTNode rand) {
-        if (rand.getTypeOfASTNode() != ASTNodeType.TUPLE)
-            printEvaluationErrorToStdOut(rand.getLineNumberOfSourceFile(), "Expected a tuple; was given \"" + rand.getValueOfASTNode() + "\"");
+    private void isNullTuple(ASTNode node, RPALValue rand) {
+        if (!(rand instanceof Tuple))
+            printEvaluationErrorToStdOut(node.getLineNumberOfSourceFile(), "Expected a tuple; was given \"" + rand.getPrintValue() + "\"");
 
-        if (getNumChildren(rand) == 0)
-            pushTrueNode();
-        else
-            pushFalseNode();
+        pushTruthValue(rand == Tuple.NIL);
     }
 
     // RULE 10
-    private void tupleSelection(Tuple rator, ASTNode rand) {
-        if (rand.getTypeOfASTNode() != ASTNodeType.INTEGER)
-            printEvaluationErrorToStdOut(rand.getLineNumberOfSourceFile(), "Non-integer tuple selection with \"" + rand.getValueOfASTNode() + "\"");
+    private void tupleSelection(ASTNode node, Tuple rator, RPALValue rand) {
+        if (!(rand instanceof IntegerValue))
+            printEvaluationErrorToStdOut(node.getLineNumberOfSourceFile(), "Non-integer tuple selection with \"" + rand.getPrintValue() + "\"");
 
-        ASTNode result = getNthTupleChild(rator, Integer.parseInt(rand.getValueOfASTNode()));
+        IntegerValue index = (IntegerValue) rand;
+        RPALValue result = index.isLong() && index.getLongValue() <= Integer.MAX_VALUE ? rator.get((int) index.getLongValue()) : null;
         if (result == null)
-            printEvaluationErrorToStdOut(rand.getLineNumberOfSourceFile(), "Tuple selection index " + rand.getValueOfASTNode() + " out of bounds");
+            printEvaluationErrorToStdOut(node.getLineNumberOfSourceFile(), "Tuple selection index " + rand.getPrintValue() + " out of bounds");
 
         valueStack.push(result);
     }
 
-    /**
-     * Get the nth element of the tuple. Note that n starts from 1 and NOT 0.
-     *
-     * @param tupleNode
-     * @param n         n starts from 1 and NOT 0.
-     * @return
-     */
-    private ASTNode getNthTupleChild(Tuple tupleNode, int n) {
-        ASTNode childNode = tupleNode.getChildOfASTNode();
-        for (int i = 1; i < n; ++i) { //tuple selection index starts at 1
-            if (childNode == null)
-                break;
-            childNode = childNode.getSiblingOfASTNode();
-        }
-        return childNode;
-    }
-
-    private void handleIdentifiers(ASTNode node, Environment currentEnv) {
-        if (currentEnv.lookup(node.getValueOfASTNode()) != null) // RULE 1
-            valueStack.push(currentEnv.lookup(node.getValueOfASTNode()));
-        else if (isReservedIdentifier(node.getValueOfASTNode()))
-            valueStack.push(node);
+    private void handleIdentifiers(ASTNode node) {
+        RPALValue value = currentEnv.lookup(node.getValueOfASTNode());
+        if (value != null) // RULE 1
+            valueStack.push(value);
         else
             printEvaluationErrorToStdOut(node.getLineNumberOfSourceFile(), "Undeclared identifier \"" + node.getValueOfASTNode() + "\"");
     }
@@ -535,40 +802,71 @@ public class CSE_Machine {
     //RULE 9
     private void createTuple(ASTNode node) {
         int numChildren = getNumChildren(node);
-        Tuple tupleNode = new Tuple();
-        if (numChildren == 0) {
-            valueStack.push(tupleNode);
-            return;
-        }
-
-        ASTNode childNode = null, tempNode = null;
-        for (int i = 0; i < numChildren; ++i) {
-            if (childNode == null)
-                childNode = valueStack.pop();
-            else if (tempNode == null) {
-                tempNode = valueStack.pop();
-                childNode.setSiblingOfASTNode(tempNode);
+        RPALValue[] elements = new RPALValue[numChildren];
+        for (int i = 0; i < numChildren; ++i)
+            elements[i] = valueStack.pop();
+        valueStack.push(Tuple.of(elements));
+    }
+
+    // RULE 9 with the components worth it forked as tasks. The others are laid out on the control stack as usual
+    // and each forked one leaves a JOIN in its place, so the values are still taken in evaluation order, last
+    // component first
+    private void forkComponents(ParallelTuple node) {
+        controlStack.push(node.getTuple());
+        for (int i = 0; i < node.getWidth(); i++) {
+            if (node.isWorthForking(i) && canFork()) {
+                ComponentTask task = new ComponentTask(new CSE_Machine(this), node, i, currentEnv);
+                task.fork();
+                pendingComponents.push(task);
+                controlStack.push(JOIN);
+                componentsForked++;
             } else {
-                tempNode.setSiblingOfASTNode(valueStack.pop());
-                tempNode = tempNode.getSiblingOfASTNode();
+                if (node.isForkable(i))
+                    componentsKeptInPlace++;
+                controlStack.pushAll(node.getComponentBody(i));
             }
         }
-        tempNode.setSiblingOfASTNode(null);
-        tupleNode.setChildOfASTNode(childNode);
-        valueStack.push(tupleNode);
     }
 
-    // RULE 8
-    private void handleBeta(Beta_Condition_Eval node, Stack<ASTNode> currentControlStack) {
-        ASTNode conditionResultNode = valueStack.pop();
+    private boolean canFork() {
+        return POOL_IS_PARALLEL && forkDepth < MAX_FORK_DEPTH &&
+                (!ForkJoinTask.inForkJoinPool() || ForkJoinTask.getSurplusQueuedTaskCount() <= MAX_SURPLUS_TASKS);
+    }
+
+    private void joinComponent() {
+        ComponentTask task = pendingComponents.pop();
+        try {
+            valueStack.push(task.join());
+        } catch (EvaluationAbandonedException ex) {
+            reportError(ex.getMessage());
+        }
+
+        CSE_Machine machine = task.getMachine();
+        task.getTuple().recordFork(task.getComponent(), machine.steps);
+        if (machine.evaluationResult != null) //its last Print comes after everything evaluated here so far
+            evaluationResult = machine.evaluationResult;
+        for (int i = 0; i < deltaInvocationCounts.length; i++) {
+            if (deltaInvocationCounts[i] == 0)
+                deltaNames[i] = machine.deltaNames[i];
+            deltaInvocationCounts[i] += machine.deltaInvocationCounts[i];
+        }
+        gammaSites.addAll(machine.gammaSites);
+        componentsForked += machine.componentsForked;
+        componentsKeptInPlace += machine.componentsKeptInPlace;
+        rightOperandsSkipped += machine.rightOperandsSkipped;
+        rightOperandsEvaluated += machine.rightOperandsEvaluated;
+    }
 
-        if (conditionResultNode.getTypeOfASTNode() != ASTNodeType.TRUE && conditionResultNode.getTypeOfASTNode() != ASTNodeType.FALSE)
-            printEvaluationErrorToStdOut(conditionResultNode.getLineNumberOfSourceFile(), "Expecting a truthvalue; found \"" + conditionResultNode.getValueOfASTNode() + "\"");
+    // RULE 8
+    private void handleBeta(Beta_Condition_Eval node) {
+        RPALValue conditionResult = valueStack.pop();
 
-        if (conditionResultNode.getTypeOfASTNode() == ASTNodeType.TRUE)
-            currentControlStack.addAll(node.getThenBody());
+        if (conditionResult == TruthValue.TRUE)
+            controlStack.pushAll(node.getThenBody());
+        else if (conditionResult == TruthValue.FALSE)
+            controlStack.pushAll(node.getElseBody());
         else
-            currentControlStack.addAll(node.getElseBody());
+            printEvaluationErrorToStdOut(node.getLineNumberOfSourceFile(), "Expecting a truthvalue; found \"" + conditionResult.getPrintValue() + "\"");
     }
 
     private int getNumChildren(ASTNode node) {
@@ -581,21 +879,11 @@ public class CSE_Machine {
         return numChildren;
     }
 
-    private void printNodeValue(ASTNode rand) {
-        String evaluationResult = rand.getValueOfASTNode();
+    private void printNodeValue(RPALValue rand) {
+        String evaluationResult = rand.getPrintValue();
         evaluationResult = evaluationResult.replace("\\t", "\t");
         evaluationResult = evaluationResult.replace("\\n", "\n");
         this.evaluationResult = evaluationResult;
     }
 
-    // Note how this list is different from the one defined in Scanner.java
-    private boolean isReservedIdentifier(String value) {
-        return switch (value) { //typos
-            //typos
-            case "Isinteger", "Isstring", "Istuple", "Isdummy", "Istruthvalue", "Isfunction", "ItoS", "Order", "Conc", "conc", "Stern", "Stem", "Null", "Print", "print", "neg" ->
-                    true;
-            default -> false;
-        };
-    }
-
 }
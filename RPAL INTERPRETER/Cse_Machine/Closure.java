@@ -0,0 +1,36 @@
+package Cse_Machine;
+
+/**
+ * The value a lambda evaluates to (RULE 2): the lambda's delta together with the environment in effect when the
+ * lambda was evaluated.
+ */
+public class Closure extends RPALValue {
+    private final DeltaControlStructure delta;
+    private final Environment linkedEnv;
+
+    public Closure(DeltaControlStructure delta, Environment linkedEnv) {
+        this.delta = delta;
+        this.linkedEnv = linkedEnv;
+    }
+
+    public DeltaControlStructure getDelta() {
+        return delta;
+    }
+
+    public Environment getLinkedEnv() {
+        return linkedEnv;
+    }
+
+    @Override
+    public Object getCallTarget() {
+        return delta;
+    }
+
+    /**
+     * When partially applied, shows the first bound variable and the delta's number.
+     */
+    @Override
+    public String getPrintValue() {
+        return "[lambda closure: " + delta.getBoundVars().get(0) + ": " + delta.getNumber() + "]";
+    }
+}
@@ -0,0 +1,43 @@
+package Cse_Machine;
+
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * A component of a {@link ParallelTuple} forked to the common ForkJoin pool. It is evaluated by a CSE machine of
+ * its own, in the environment the tuple was reached in; environments and values are never modified once built,
+ * so the forking machine and the task can share them.
+ */
+final class ComponentTask extends RecursiveTask<RPALValue> {
+    private static final long serialVersionUID = 1L;
+
+    private final CSE_Machine machine;
+    private final ParallelTuple tuple;
+    private final int component;
+    private final Environment env;
+
+    ComponentTask(CSE_Machine machine, ParallelTuple tuple, int component, Environment env) {
+        this.machine = machine;
+        this.tuple = tuple;
+        this.component = component;
+        this.env = env;
+    }
+
+    // An RPAL error comes back as the EvaluationAbandonedException reportError throws, which the forking machine
+    // reports when it joins the component; anything else is a fault of the interpreter and propagates as it is
+    @Override
+    protected RPALValue compute() {
+        return machine.evaluateComponent(tuple.getComponentBody(component), env);
+    }
+
+    CSE_Machine getMachine() {
+        return machine;
+    }
+
+    ParallelTuple getTuple() {
+        return tuple;
+    }
+
+    int getComponent() {
+        return component;
+    }
+}
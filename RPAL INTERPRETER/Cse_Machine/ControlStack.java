@@ -0,0 +1,55 @@
+package Cse_Machine;
+
+import Abstract_Syntax_Tree.ASTNode;
+
+import java.util.Arrays;
+
+/**
+ * Array-backed control stack of the CSE machine.
+ * <p>
+ * Delta bodies and conditional branches are compiled once into plain arrays, so loading one onto the
+ * control stack is a single bulk copy instead of an element-by-element push onto a synchronized
+ * {@link java.util.Stack}.
+ * </p>
+ */
+public class ControlStack {
+    private ASTNode[] elements;
+    private int size;
+
+    public ControlStack() {
+        elements = new ASTNode[32];
+    }
+
+    public void push(ASTNode node) {
+        if (size == elements.length)
+            elements = Arrays.copyOf(elements, size * 2);
+        elements[size++] = node;
+    }
+
+    /**
+     * Push a compiled body so that its last element ends up on top of the stack.
+     */
+    public void pushAll(ASTNode[] body) {
+        if (size + body.length > elements.length)
+            elements = Arrays.copyOf(elements, Math.max(size * 2, size + body.length));
+        System.arraycopy(body, 0, elements, size, body.length);
+        size += body.length;
+    }
+
+    public ASTNode pop() {
+        ASTNode node = elements[--size];
+        elements[size] = null;
+        return node;
+    }
+
+    /**
+     * @return the element on top of the stack without removing it, or null if the stack is empty
+     */
+    public ASTNode peek() {
+        return size == 0 ? null : elements[size - 1];
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+}
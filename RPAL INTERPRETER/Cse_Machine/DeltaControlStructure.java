@@ -5,20 +5,21 @@ import Abstract_Syntax_Tree.ASTNodeType;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Stack;
 
 /**
- * Models a lambda‐style closure, bundling:
+ * Models the code of a lambda, bundling:
  *  - its bound variable names,
- *  - the environment where it was created,
  *  - the AST nodes forming its body, and
  *  - a numeric identifier.
+ * Evaluating it pairs it with the current environment in a {@link Closure}.
  */
 public class DeltaControlStructure extends ASTNode {
     private List<String> boundVars;
-    private Environment linkedEnv;       // Environment captured at creation
-    private Stack<ASTNode> body;         // AST nodes making up the closure’s body
-    private int index;                   // Closure identifier
+    private ASTNode[] body;              // AST nodes making up the closure’s body, compiled once
+    private int index;                   // Position among the program's deltas
+    private int number;                  // Closure identifier, as printed
+    private DeltaControlStructure[] curriedChain;
+    private boolean memoizable;
 
     /**
      * Create a new DELTA closure node and initialize its variable list.
@@ -29,18 +30,11 @@ public class DeltaControlStructure extends ASTNode {
     }
 
     /**
-     * Duplicate this node via the provided copier.
-     */
-    public DeltaControlStructure acceptASTNode(Node_Duplication copier) {
-        return copier.takecopy(this);
-    }
-
-    /**
-     * When partially applied, shows the first bound variable and this closure’s index.
+     * When partially applied, shows the first bound variable and this closure’s number.
      */
     @Override
     public String getValueOfASTNode() {
-        return "[lambda closure: " + boundVars.get(0) + ": " + index + "]";
+        return "[lambda closure: " + boundVars.get(0) + ": " + number + "]";
     }
 
     //––– boundVars accessors –––
@@ -57,14 +51,46 @@ public class DeltaControlStructure extends ASTNode {
     }
 
     //––– body accessors –––
-    public Stack<ASTNode> getBody() {
+    public ASTNode[] getBody() {
         return body;
     }
 
-    public void setBody(Stack<ASTNode> codeBody) {
+    public void setBody(ASTNode[] codeBody) {
         this.body = codeBody;
     }
 
+    //––– curriedChain accessors –––
+
+    /**
+     * @return this delta followed by the deltas it returns without doing anything else: for
+     * 'fn x. fn y. fn z. B' the deltas of x, y and z. Its length is the number of arguments the function takes
+     * before it does any work.
+     */
+    public DeltaControlStructure[] getCurriedChain() {
+        return curriedChain;
+    }
+
+    public void setCurriedChain(DeltaControlStructure[] chain) {
+        this.curriedChain = chain;
+    }
+
+    public int getCurriedArity() {
+        return curriedChain.length;
+    }
+
+    //––– memoizable accessors –––
+
+    /**
+     * @return true if this is the delta Y* is applied to for a 'rec' function whose results may be cached
+     */
+    public boolean isMemoizable() {
+        return memoizable;
+    }
+
+    public void setMemoizable(boolean memoizable) {
+        this.memoizable = memoizable;
+    }
+
     //––– index accessors –––
     public int getIndex() {
         return index;
@@ -74,13 +100,17 @@ public class DeltaControlStructure extends ASTNode {
         this.index = idx;
     }
 
-    //––– linkedEnv accessors –––
-    public Environment getLinkedEnv() {
-        return linkedEnv;
+    //––– number accessors –––
+
+    /**
+     * @return the index this delta had before the standardized tree was optimized, which is what a closure of
+     * it prints
+     */
+    public int getNumber() {
+        return number;
     }
 
-    public void setLinkedEnv(Environment env) {
-        this.linkedEnv = env;
+    public void setNumber(int number) {
+        this.number = number;
     }
 }
-
@@ -0,0 +1,16 @@
+package Cse_Machine;
+
+/**
+ * The RPAL 'dummy' value, also what Print returns. {@link #DUMMY} is its only instance.
+ */
+public class DummyValue extends RPALValue {
+    public static final DummyValue DUMMY = new DummyValue();
+
+    private DummyValue() {
+    }
+
+    @Override
+    public String getPrintValue() {
+        return "dummy";
+    }
+}
@@ -1,16 +1,28 @@
 package Cse_Machine;
 
-import Abstract_Syntax_Tree.ASTNode;
-
-import java.util.HashMap;
-import java.util.Map;
-
-public class Environment {
+/**
+ * A frame of bindings, linked to the frame of the lexically enclosing lambda.
+ * <p>
+ * Almost every frame binds a single name, and a tuple-pattern lambda binds a few, so frames keep their bindings
+ * in fields or a small array that is scanned linearly rather than in a hash map. {@link #create(Environment, int)}
+ * picks the smallest frame that holds the given number of bindings.
+ * </p>
+ */
+public abstract class Environment {
     private Environment parent;
-    private final Map<String, ASTNode> nameValueMap;
 
-    public Environment() {
-        nameValueMap = new HashMap<String, ASTNode>();
+    /**
+     * @param parent   the enclosing environment, or null for the primitive environment
+     * @param capacity how many distinct names will be bound in the new environment
+     */
+    public static Environment create(Environment parent, int capacity) {
+        Environment env = switch (capacity) {
+            case 0, 1 -> new OneSlotEnvironment();
+            case 2 -> new TwoSlotEnvironment();
+            default -> new MultiSlotEnvironment(capacity);
+        };
+        env.parent = parent;
+        return env;
     }
 
     public Environment getParent() {
@@ -26,25 +38,37 @@ public class Environment {
      * inheritance hierarchy, starting with the Environment this method is invoked on.
      *
      * @param key key the mapping of which to find
-     * @return ASTNode that corresponds to the mapping of the key passed in as an argument
+     * @return value that corresponds to the mapping of the key passed in as an argument
      * or null if no mapping was found
      */
-    public ASTNode lookup(String key) {
-        ASTNode retValue = null;
-        Map<String, ASTNode> map = nameValueMap;
-
-        retValue = map.get(key);
-
-        if (retValue != null)
-            return retValue.acceptASTNode(new Node_Duplication());
-
-        if (parent != null)
-            return parent.lookup(key);
-        else
-            return null;
+    public RPALValue lookup(String key) {
+        for (Environment env = this; env != null; env = env.parent) {
+            RPALValue value = env.find(key);
+            if (value != null)
+                return value; //values are never modified in place, so the binding itself can be shared
+        }
+        return null;
     }
 
-    public void addMapping(String key, ASTNode value) {
-        nameValueMap.put(key, value);
+    /**
+     * @return the environment on this one's chain that binds the key itself, or null if none does
+     */
+    public Environment frameBinding(String key) {
+        for (Environment env = this; env != null; env = env.parent)
+            if (env.find(key) != null)
+                return env;
+        return null;
     }
+
+    /**
+     * Bind the key in this environment, replacing an existing binding of the same key.
+     *
+     * @throws IllegalStateException if the environment already holds as many names as it was created for
+     */
+    public abstract void addMapping(String key, RPALValue value);
+
+    /**
+     * @return the value bound to the key in this environment alone, or null
+     */
+    protected abstract RPALValue find(String key);
 }
@@ -1,13 +1,10 @@
 package Cse_Machine;
 
-import Abstract_Syntax_Tree.ASTNode;
-import Abstract_Syntax_Tree.ASTNodeType;
-
 /**
  * Handles the application of the fixed-point operator (Y) to a function AST.
  * <p>
- * This node wraps a DeltaControlStructure, representing the “eta-expanded”
- * form of a recursive function. It does not itself compute the fixed point;
+ * This value wraps the closure of a recursive function's defining lambda, representing the “eta-expanded”
+ * form of the function. It does not itself compute the fixed point;
  * rather, it relies on the evaluation engine to select the non-recursive
  * branch at runtime to avoid infinite loops.
  * </p>
@@ -15,15 +12,28 @@ import Abstract_Syntax_Tree.ASTNodeType;
  * While this mechanism aids in managing recursive calls safely, it cannot
  * guard against deliberately infinite recursion in user code.
  * </p>
+ * <p>
+ * When the wrapped lambda is 'lambda f. lambda x. B', as for any 'rec' function with parameters, unrolling it
+ * always gives the same closure: 'lambda x. B' in a frame binding f to this eta. That frame, a letrec cell, and
+ * the closure are built once here, so applying the function is an ordinary closure application.
+ * </p>
  */
-public class EtaRecursiveFixedPoint extends ASTNode {
-    private DeltaControlStructure delta;
+public class EtaRecursiveFixedPoint extends RPALValue {
+    private final Closure closure;
+    private final Closure unrolledClosure; // null unless the wrapped lambda's body is a lambda
 
     /**
-     * Tag this node as an ETA (fixed-point) AST node.
+     * Wrap the closure that Y* was applied to (RULE 12).
      */
-    public EtaRecursiveFixedPoint() {
-        setTypeOfASTNode(ASTNodeType.ETA);
+    public EtaRecursiveFixedPoint(Closure closure) {
+        this.closure = closure;
+        DeltaControlStructure delta = closure.getDelta();
+        if (delta.getBoundVars().size() == 1 && delta.getCurriedArity() > 1) {
+            Environment cell = Environment.create(closure.getLinkedEnv(), 1);
+            cell.addMapping(delta.getBoundVars().get(0), this);
+            unrolledClosure = new Closure(delta.getCurriedChain()[1], cell);
+        } else
+            unrolledClosure = null;
     }
 
     /**
@@ -31,31 +41,23 @@ public class EtaRecursiveFixedPoint extends ASTNode {
      * underlying delta and its identifier.
      */
     @Override
-    public String getValueOfASTNode() {
-        String varName = delta.getBoundVars().get(0);
-        int id       = delta.getIndex();
+    public String getPrintValue() {
+        String varName = closure.getDelta().getBoundVars().get(0);
+        int id       = closure.getDelta().getNumber();
         return "[eta closure: " + varName + ": " + id + "]";
     }
 
     /**
-     * Delegate copying logic to the supplied Node_Duplication helper.
-     */
-    @Override
-    public EtaRecursiveFixedPoint acceptASTNode(Node_Duplication copier) {
-        return copier.takecopy(this);
-    }
-
-    /**
-     * Retrieve the associated DeltaControlStructure (the “body” of this fixed-point).
+     * Retrieve the wrapped closure (the “body” of this fixed-point).
      */
-    public DeltaControlStructure getDelta() {
-        return delta;
+    public Closure getClosure() {
+        return closure;
     }
 
     /**
-     * Attach a DeltaControlStructure that this fixed-point node will wrap.
+     * @return what applying the wrapped closure to this eta gives, or null if that has to be evaluated each time
      */
-    public void setDelta(DeltaControlStructure delta) {
-        this.delta = delta;
+    public Closure getUnrolledClosure() {
+        return unrolledClosure;
     }
 }
@@ -0,0 +1,14 @@
+package Cse_Machine;
+
+/**
+ * Thrown by {@link CSE_Machine#evaluateWithFuel(long)} when the expression fails, or has not finished within its
+ * budget of steps, instead of reporting an error and exiting. A forked tuple component that fails throws it too,
+ * with the error the machine that forked it reports.
+ */
+public class EvaluationAbandonedException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public EvaluationAbandonedException(String message) {
+        super(message);
+    }
+}
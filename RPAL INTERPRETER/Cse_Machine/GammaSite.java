@@ -0,0 +1,90 @@
+package Cse_Machine;
+
+import Abstract_Syntax_Tree.ASTNode;
+import Abstract_Syntax_Tree.ASTNodeType;
+
+/**
+ * A compiled GAMMA (application) with an inline cache.
+ * <p>
+ * Most application sites only ever see one kind of rator, and often closures over one delta. The site remembers
+ * up to {@link #POLYMORPHIC_LIMIT} call targets (see {@link RPALValue#getCallTarget()}) together with the kind of
+ * rator each one belongs to. When the target of the next application is one of them, the CSE machine goes
+ * straight to the right rule instead of testing the rator against every kind in turn.
+ * </p>
+ * <p>
+ * Each cached target is kept with its kind in one immutable entry, so tuple components evaluated on other threads
+ * may share the site: two threads recording at once can at worst lose an entry, which is then recorded again on
+ * the next miss. The hit and miss counts are only statistics and may lose updates the same way.
+ * </p>
+ */
+public class GammaSite extends ASTNode {
+    public static final int POLYMORPHIC_LIMIT = 4;
+
+    public enum RatorKind {
+        CLOSURE, ETA, TUPLE, PRIMITIVE
+    }
+
+    private final Entry[] entries = new Entry[POLYMORPHIC_LIMIT]; // filled from the front
+    private boolean megamorphic; // saw more targets than the cache holds
+    private long hits;
+    private long misses;
+
+    public GammaSite(ASTNode source) {
+        setTypeOfASTNode(ASTNodeType.GAMMA);
+        setValueOfASTNode(source.getValueOfASTNode());
+        setLineNumberOfSourceFile(source.getLineNumberOfSourceFile());
+    }
+
+    /**
+     * @return the kind of rator recorded for the target, or null if the site has not cached it
+     */
+    public RatorKind lookup(Object target) {
+        for (Entry entry : entries) {
+            if (entry == null)
+                break;
+            if (entry.target == target) {
+                hits++;
+                return entry.kind;
+            }
+        }
+        misses++;
+        return null;
+    }
+
+    public void record(Object target, RatorKind kind) {
+        for (int i = 0; i < POLYMORPHIC_LIMIT; i++) {
+            if (entries[i] == null) {
+                entries[i] = new Entry(target, kind);
+                return;
+            }
+        }
+        megamorphic = true;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return monomorphic, polymorphic or megamorphic, after how many targets the site has seen
+     */
+    public String getCacheState() {
+        if (megamorphic)
+            return "megamorphic";
+        return entries[1] == null ? "monomorphic" : "polymorphic";
+    }
+
+    private static final class Entry {
+        final Object target;
+        final RatorKind kind;
+
+        Entry(Object target, RatorKind kind) {
+            this.target = target;
+            this.kind = kind;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package Cse_Machine;
+
+import java.math.BigInteger;
+
+/**
+ * An RPAL integer. RPAL integers are unbounded: values that fit in a long are held as an unboxed long, and an
+ * operation whose result overflows a long is redone on {@link BigInteger}. A result that fits in a long again is
+ * brought back to the long form, so only the large values pay for arbitrary precision.
+ * <p>
+ * Like {@link Integer#valueOf(int)}, {@link #valueOf(long)} hands out shared instances for small values, which are
+ * what loop counters and tuple indices mostly are. The upper end of the cached range can be raised with the
+ * system property {@value #CACHE_HIGH_PROPERTY}.
+ * </p>
+ */
+public class IntegerValue extends RPALValue {
+    public static final String CACHE_HIGH_PROPERTY = "rpal.integerCache.high";
+
+    private static final int CACHE_LOW = -128;
+    private static final IntegerValue[] CACHE;
+    private static final int CACHE_HIGH;
+
+    private static final BigInteger LONG_MIN = BigInteger.valueOf(Long.MIN_VALUE);
+    private static final BigInteger LONG_MAX = BigInteger.valueOf(Long.MAX_VALUE);
+
+    static {
+        int high = Integer.getInteger(CACHE_HIGH_PROPERTY, 1024);
+        high = Math.max(high, 127);
+        CACHE_HIGH = high;
+        CACHE = new IntegerValue[high - CACHE_LOW + 1];
+        for (int i = 0; i < CACHE.length; i++)
+            CACHE[i] = new IntegerValue(CACHE_LOW + i, null);
+    }
+
+    private final long value;
+    private final BigInteger bigValue; //null whenever the value fits in a long
+
+    private IntegerValue(long value, BigInteger bigValue) {
+        this.value = value;
+        this.bigValue = bigValue;
+    }
+
+    public static IntegerValue valueOf(long value) {
+        if (value >= CACHE_LOW && value <= CACHE_HIGH)
+            return CACHE[(int) (value - CACHE_LOW)];
+        return new IntegerValue(value, null);
+    }
+
+    public static IntegerValue valueOf(BigInteger value) {
+        if (value.compareTo(LONG_MIN) >= 0 && value.compareTo(LONG_MAX) <= 0)
+            return valueOf(value.longValue());
+        return new IntegerValue(0, value);
+    }
+
+    /**
+     * @param digits the decimal digits of an integer literal
+     */
+    public static IntegerValue parse(String digits) {
+        try {
+            return valueOf(Long.parseLong(digits));
+        } catch (NumberFormatException ex) {
+            return valueOf(new BigInteger(digits));
+        }
+    }
+
+    /**
+     * @return true if the value fits in a long, i.e. {@link #getLongValue()} is exact
+     */
+    public boolean isLong() {
+        return bigValue == null;
+    }
+
+    public long getLongValue() {
+        return value;
+    }
+
+    private BigInteger toBigInteger() {
+        return bigValue != null ? bigValue : BigInteger.valueOf(value);
+    }
+
+    // The Math.*Exact methods are intrinsics; their ArithmeticException only happens on the rare overflowing call
+    public IntegerValue add(IntegerValue other) {
+        if (isLong() && other.isLong()) {
+            try {
+                return valueOf(Math.addExact(value, other.value));
+            } catch (ArithmeticException overflow) {
+                //fall through to arbitrary precision
+            }
+        }
+        return valueOf(toBigInteger().add(other.toBigInteger()));
+    }
+
+    public IntegerValue subtract(IntegerValue other) {
+        if (isLong() && other.isLong()) {
+            try {
+                return valueOf(Math.subtractExact(value, other.value));
+            } catch (ArithmeticException overflow) {
+                //fall through to arbitrary precision
+            }
+        }
+        return valueOf(toBigInteger().subtract(other.toBigInteger()));
+    }
+
+    public IntegerValue multiply(IntegerValue other) {
+        if (isLong() && other.isLong()) {
+            try {
+                return valueOf(Math.multiplyExact(value, other.value));
+            } catch (ArithmeticException overflow) {
+                //fall through to arbitrary precision
+            }
+        }
+        return valueOf(toBigInteger().multiply(other.toBigInteger()));
+    }
+
+    /**
+     * Integer division, rounding towards zero.
+     *
+     * @throws ArithmeticException if other is zero
+     */
+    public IntegerValue divide(IntegerValue other) {
+        if (other.signum() == 0)
+            throw new ArithmeticException("Division by zero");
+        //Long.MIN_VALUE / -1 is the one quotient of two longs that is not a long
+        if (isLong() && other.isLong() && !(value == Long.MIN_VALUE && other.value == -1))
+            return valueOf(value / other.value);
+        return valueOf(toBigInteger().divide(other.toBigInteger()));
+    }
+
+    public IntegerValue negate() {
+        if (isLong() && value != Long.MIN_VALUE) //the only long whose negation is not a long
+            return valueOf(-value);
+        return valueOf(toBigInteger().negate());
+    }
+
+    /**
+     * Raise this value to the given power by repeated squaring. A negative exponent gives the reciprocal
+     * rounded towards zero, as integer division would.
+     *
+     * @throws ArithmeticException if zero is raised to a negative power, or the result cannot be represented
+     */
+    public IntegerValue pow(IntegerValue exponent) {
+        if (isLong() && (value == 0 || value == 1 || value == -1)) {
+            if (value == 0 && exponent.signum() < 0)
+                throw new ArithmeticException("Cannot raise zero to a negative power");
+            if (value == 0)
+                return valueOf(exponent.signum() == 0 ? 1 : 0);
+            return value == 1 || !exponent.toBigInteger().testBit(0) ? valueOf(1) : valueOf(-1);
+        }
+        if (exponent.signum() < 0)
+            return valueOf(0);
+        if (!exponent.isLong() || exponent.value > Integer.MAX_VALUE)
+            throw new ArithmeticException("Exponent " + exponent.getPrintValue() + " is too large");
+
+        if (isLong()) {
+            long result = 1;
+            long base = value;
+            long remaining = exponent.value;
+            try {
+                while (true) {
+                    if ((remaining & 1) != 0)
+                        result = Math.multiplyExact(result, base);
+                    remaining >>= 1;
+                    if (remaining == 0)
+                        return valueOf(result);
+                    base = Math.multiplyExact(base, base);
+                }
+            } catch (ArithmeticException overflow) {
+                //fall through to arbitrary precision
+            }
+        }
+        try {
+            return valueOf(toBigInteger().pow((int) exponent.value));
+        } catch (ArithmeticException overflow) {
+            //BigInteger holds at most Integer.MAX_VALUE bits
+            throw new ArithmeticException("Exponent " + exponent.getPrintValue() + " is too large");
+        }
+    }
+
+    /**
+     * @return the number of bits of the value without its sign, as {@link BigInteger#bitLength()}
+     */
+    public int bitLength() {
+        if (bigValue != null)
+            return bigValue.bitLength();
+        return Long.SIZE - Long.numberOfLeadingZeros(value < 0 ? ~value : value);
+    }
+
+    public int signum() {
+        return bigValue != null ? bigValue.signum() : Long.signum(value);
+    }
+
+    public int compareTo(IntegerValue other) {
+        if (isLong() && other.isLong())
+            return Long.compare(value, other.value);
+        return toBigInteger().compareTo(other.toBigInteger());
+    }
+
+    @Override
+    public String getPrintValue() {
+        return bigValue != null ? bigValue.toString() : Long.toString(value);
+    }
+}
@@ -0,0 +1,42 @@
+package Cse_Machine;
+
+import Abstract_Syntax_Tree.ASTNode;
+import Abstract_Syntax_Tree.ASTNodeType;
+
+/**
+ * A constant in a delta body, or a reference to a predefined function. The value is built once when the delta is
+ * compiled, so evaluating the node only pushes the prepared value.
+ */
+public class Literal extends ASTNode {
+    private final RPALValue value;
+
+    public Literal(ASTNode source) {
+        setTypeOfASTNode(source.getTypeOfASTNode());
+        setValueOfASTNode(source.getValueOfASTNode());
+        setLineNumberOfSourceFile(source.getLineNumberOfSourceFile());
+        value = switch (source.getTypeOfASTNode()) {
+            case INTEGER -> IntegerValue.parse(source.getValueOfASTNode());
+            case STRING -> new StringValue(source.getValueOfASTNode());
+            case TRUE -> TruthValue.TRUE;
+            case FALSE -> TruthValue.FALSE;
+            case NIL -> Tuple.NIL;
+            case DUMMY -> DummyValue.DUMMY;
+            case YSTAR -> PrimitiveFunction.Y_STAR;
+            default -> throw new RuntimeException("Not a literal: " + source.getTypeOfASTNode());
+        };
+    }
+
+    /**
+     * An identifier resolved to a predefined function before evaluation.
+     */
+    public Literal(ASTNode source, PrimitiveFunction value) {
+        setTypeOfASTNode(ASTNodeType.PRIMITIVE);
+        setValueOfASTNode(source.getValueOfASTNode());
+        setLineNumberOfSourceFile(source.getLineNumberOfSourceFile());
+        this.value = value;
+    }
+
+    public RPALValue getValue() {
+        return value;
+    }
+}
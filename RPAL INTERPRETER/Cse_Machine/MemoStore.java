@@ -0,0 +1,21 @@
+package Cse_Machine;
+
+import Abstract_Syntax_Tree.ASTNode;
+import Abstract_Syntax_Tree.ASTNodeType;
+
+/**
+ * Pushed under the body of a memoized call that missed the cache; when it is reached the call's result is on top
+ * of the value stack and is stored under the call's key.
+ */
+final class MemoStore extends ASTNode {
+    private final MemoTable.Key key;
+
+    MemoStore(MemoTable.Key key) {
+        setTypeOfASTNode(ASTNodeType.MEMO_STORE);
+        this.key = key;
+    }
+
+    MemoTable.Key getKey() {
+        return key;
+    }
+}
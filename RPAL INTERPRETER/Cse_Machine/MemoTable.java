@@ -0,0 +1,143 @@
+package Cse_Machine;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Results of memoized 'rec' functions, keyed on the function and its arguments. Only arguments made of integers,
+ * strings, truthvalues, dummy and tuples of those are used as keys; they are compared by value, tuples element by
+ * element. The table holds at most a fixed number of results and drops the least recently used one when full.
+ */
+class MemoTable {
+    private final LinkedHashMap<Key, RPALValue> results;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    MemoTable(int capacity) {
+        results = new LinkedHashMap<Key, RPALValue>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, RPALValue> eldest) {
+                if (size() <= capacity)
+                    return false;
+                evictions++;
+                return true;
+            }
+        };
+    }
+
+    /**
+     * @return the cached result, or null if there is none
+     */
+    RPALValue get(Key key) {
+        RPALValue result = results.get(key);
+        if (result != null)
+            hits++;
+        else
+            misses++;
+        return result;
+    }
+
+    void put(Key key, RPALValue result) {
+        results.put(key, result);
+    }
+
+    long getHits() {
+        return hits;
+    }
+
+    long getMisses() {
+        return misses;
+    }
+
+    long getEvictions() {
+        return evictions;
+    }
+
+    int size() {
+        return results.size();
+    }
+
+    static boolean isCacheable(RPALValue value) {
+        if (value instanceof Tuple) {
+            Tuple tuple = (Tuple) value;
+            for (int n = 1; n <= tuple.size(); n++)
+                if (!isCacheable(tuple.get(n)))
+                    return false;
+            return true;
+        }
+        return value instanceof IntegerValue || value instanceof StringValue || value instanceof TruthValue ||
+                value instanceof DummyValue;
+    }
+
+    private static boolean sameValue(RPALValue a, RPALValue b) {
+        if (a == b)
+            return true;
+        if (a instanceof IntegerValue && b instanceof IntegerValue)
+            return ((IntegerValue) a).compareTo((IntegerValue) b) == 0;
+        if (a instanceof StringValue && b instanceof StringValue)
+            return ((StringValue) a).contentEquals((StringValue) b);
+        if (a instanceof Tuple && b instanceof Tuple) {
+            Tuple tupleA = (Tuple) a, tupleB = (Tuple) b;
+            if (tupleA.size() != tupleB.size())
+                return false;
+            for (int n = 1; n <= tupleA.size(); n++)
+                if (!sameValue(tupleA.get(n), tupleB.get(n)))
+                    return false;
+            return true;
+        }
+        return false; //truthvalues and dummy are singletons
+    }
+
+    private static int hashOf(RPALValue value) {
+        if (value instanceof Tuple) {
+            Tuple tuple = (Tuple) value;
+            int hash = 1;
+            for (int n = 1; n <= tuple.size(); n++)
+                hash = 31 * hash + hashOf(tuple.get(n));
+            return hash;
+        }
+        if (value instanceof IntegerValue)
+            return ((IntegerValue) value).isLong() ? Long.hashCode(((IntegerValue) value).getLongValue()) : value.getPrintValue().hashCode();
+        if (value instanceof StringValue)
+            return ((StringValue) value).getStringValue().hashCode();
+        return System.identityHashCode(value);
+    }
+
+    /**
+     * A function together with the arguments it is applied to. The function is compared by identity: the same
+     * code in another environment is another function.
+     */
+    static final class Key {
+        private final RPALValue function;
+        private final RPALValue[] arguments;
+        private final int hash;
+
+        Key(RPALValue function, RPALValue[] arguments) {
+            this.function = function;
+            this.arguments = arguments;
+            int h = System.identityHashCode(function);
+            for (RPALValue argument : arguments)
+                h = 31 * h + hashOf(argument);
+            this.hash = h;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key))
+                return false;
+            Key key = (Key) other;
+            if (function != key.function || arguments.length != key.arguments.length)
+                return false;
+            for (int i = 0; i < arguments.length; i++)
+                if (!sameValue(arguments[i], key.arguments[i]))
+                    return false;
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package Cse_Machine;
+
+/**
+ * An environment binding a fixed number of names in parallel arrays, scanned linearly. Tuple patterns are short,
+ * so a scan beats hashing.
+ */
+final class MultiSlotEnvironment extends Environment {
+    private final String[] names;
+    private final RPALValue[] values;
+    private int size;
+
+    MultiSlotEnvironment(int capacity) {
+        names = new String[capacity];
+        values = new RPALValue[capacity];
+    }
+
+    @Override
+    public void addMapping(String key, RPALValue value) {
+        for (int i = 0; i < size; i++) {
+            if (names[i].equals(key)) {
+                values[i] = value;
+                return;
+            }
+        }
+        if (size == names.length)
+            throw new IllegalStateException("Environment is full, cannot bind \"" + key + "\"");
+        names[size] = key;
+        values[size++] = value;
+    }
+
+    @Override
+    protected RPALValue find(String key) {
+        for (int i = 0; i < size; i++)
+            if (names[i].equals(key))
+                return values[i];
+        return null;
+    }
+}
@@ -0,0 +1,22 @@
+package Cse_Machine;
+
+/**
+ * An environment binding at most one name, which is what applying an ordinary lambda creates.
+ */
+final class OneSlotEnvironment extends Environment {
+    private String name;
+    private RPALValue value;
+
+    @Override
+    public void addMapping(String key, RPALValue value) {
+        if (name != null && !name.equals(key))
+            throw new IllegalStateException("Environment is full, cannot bind \"" + key + "\"");
+        this.name = key;
+        this.value = value;
+    }
+
+    @Override
+    protected RPALValue find(String key) {
+        return key.equals(name) ? value : null;
+    }
+}
@@ -0,0 +1,74 @@
+package Cse_Machine;
+
+import Abstract_Syntax_Tree.ASTNode;
+import Abstract_Syntax_Tree.ASTNodeType;
+
+/**
+ * A tau with components that may be evaluated on other threads: the CSE machine forks those components as tasks
+ * and evaluates the others itself, taking the forked ones' values in the order it would have computed them.
+ * <p>
+ * A component is only marked forkable when it applies a function, so evaluating it may take a while. What forking
+ * one actually buys is measured: after {@value #PROFILED_FORKS} forks, a component whose tasks have averaged fewer
+ * than {@value #MIN_FORKED_STEPS} steps of the CSE machine is evaluated in place from then on.
+ * </p>
+ */
+public class ParallelTuple extends ASTNode {
+    public static final int PROFILED_FORKS = 8;
+    public static final long MIN_FORKED_STEPS = 10000;
+
+    private final ASTNode tuple;
+    private final ASTNode[][] componentBodies;
+    private final boolean[] forkable;
+    //updated without synchronization by whichever thread joins a task; a lost update only shifts the average
+    private final long[] forks;
+    private final long[] forkedSteps;
+
+    /**
+     * @param tuple the TAU node, which still builds the tuple from the components' values
+     * @param componentBodies the compiled components, first component first
+     * @param forkable which components are worth forking
+     */
+    public ParallelTuple(ASTNode tuple, ASTNode[][] componentBodies, boolean[] forkable) {
+        setTypeOfASTNode(ASTNodeType.PARALLEL_TAU);
+        setLineNumberOfSourceFile(tuple.getLineNumberOfSourceFile());
+        this.tuple = tuple;
+        this.componentBodies = componentBodies;
+        this.forkable = forkable;
+        this.forks = new long[forkable.length];
+        this.forkedSteps = new long[forkable.length];
+    }
+
+    public ASTNode getTuple() {
+        return tuple;
+    }
+
+    public int getWidth() {
+        return componentBodies.length;
+    }
+
+    /**
+     * @param i the component's index, from 0
+     */
+    public ASTNode[] getComponentBody(int i) {
+        return componentBodies[i];
+    }
+
+    public boolean isForkable(int i) {
+        return forkable[i];
+    }
+
+    /**
+     * @return true if the component is forkable and its tasks have not turned out too small to be worth forking
+     */
+    public boolean isWorthForking(int i) {
+        return forkable[i] && (forks[i] < PROFILED_FORKS || forkedSteps[i] / forks[i] >= MIN_FORKED_STEPS);
+    }
+
+    /**
+     * Count a task that evaluated the component in the given number of steps.
+     */
+    public void recordFork(int i, long steps) {
+        forks[i]++;
+        forkedSteps[i] += steps;
+    }
+}
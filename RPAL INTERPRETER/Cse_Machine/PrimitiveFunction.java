@@ -0,0 +1,80 @@
+package Cse_Machine;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A predefined function of RPAL (Print, Conc, Order, ...) or the fixed-point operator Y*, named as in the source.
+ * <p>
+ * There is one instance per name. References to the predefined functions are resolved to these instances when
+ * the delta bodies are built, and the CSE machine dispatches on {@link #getKind()}.
+ * </p>
+ */
+public class PrimitiveFunction extends RPALValue {
+
+    public enum Kind {
+        Y_STAR, ISINTEGER, ISSTRING, ISTUPLE, ISDUMMY, ISTRUTHVALUE, ISFUNCTION,
+        STEM, STERN, CONC, PRINT, ITOS, ORDER, NULL, NEG
+    }
+
+    // Note how this list is different from the one defined in Scanner.java
+    private static final Map<String, PrimitiveFunction> BUILTINS = new HashMap<String, PrimitiveFunction>();
+
+    public static final PrimitiveFunction Y_STAR = new PrimitiveFunction("Y*", Kind.Y_STAR);
+
+    static {
+        register("Isinteger", Kind.ISINTEGER);
+        register("Isstring", Kind.ISSTRING);
+        register("Istuple", Kind.ISTUPLE);
+        register("Isdummy", Kind.ISDUMMY);
+        register("Istruthvalue", Kind.ISTRUTHVALUE);
+        register("Isfunction", Kind.ISFUNCTION);
+        register("Stem", Kind.STEM);
+        register("Stern", Kind.STERN);
+        register("Conc", Kind.CONC);
+        register("conc", Kind.CONC); //typos
+        register("Print", Kind.PRINT);
+        register("print", Kind.PRINT); //typos
+        register("ItoS", Kind.ITOS);
+        register("Order", Kind.ORDER);
+        register("Null", Kind.NULL);
+        register("neg", Kind.NEG);
+    }
+
+    private final String name;
+    private final Kind kind;
+
+    private PrimitiveFunction(String name, Kind kind) {
+        this.name = name;
+        this.kind = kind;
+    }
+
+    private static void register(String name, Kind kind) {
+        BUILTINS.put(name, new PrimitiveFunction(name, kind));
+    }
+
+    /**
+     * @return the predefined function the identifier names, or null if it names none
+     */
+    public static PrimitiveFunction forName(String name) {
+        return BUILTINS.get(name);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    @Override
+    public Object getCallTarget() {
+        return this;
+    }
+
+    @Override
+    public String getPrintValue() {
+        return name;
+    }
+}
@@ -0,0 +1,25 @@
+package Cse_Machine;
+
+/**
+ * A value the CSE machine computes with: what sits on the value stack and what environments bind names to.
+ * <p>
+ * Values are kept apart from the syntax tree so that each kind carries its data in its natural Java form (an
+ * int, a boolean, an array of elements) instead of as the string value of an ASTNode. Values are immutable, so
+ * any number of environments and tuples may share one.
+ * </p>
+ */
+public abstract class RPALValue {
+
+    /**
+     * @return the text Print shows for this value
+     */
+    public abstract String getPrintValue();
+
+    /**
+     * What an application site caches this value as when it is the rator. Values of one kind that are applied the
+     * same way share a target; closures are told apart by their delta.
+     */
+    public Object getCallTarget() {
+        return getClass();
+    }
+}
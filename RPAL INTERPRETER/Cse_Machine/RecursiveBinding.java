@@ -0,0 +1,25 @@
+package Cse_Machine;
+
+import Abstract_Syntax_Tree.ASTNode;
+import Abstract_Syntax_Tree.ASTNodeType;
+
+/**
+ * A 'rec' definition, 'gamma Y* (lambda f. ...)', compiled into one step that builds the function's
+ * {@link EtaRecursiveFixedPoint} and its letrec cell directly instead of applying Y*.
+ */
+public class RecursiveBinding extends ASTNode {
+    private final DeltaControlStructure delta;
+
+    /**
+     * @param delta the delta of 'lambda f. ...'
+     */
+    public RecursiveBinding(ASTNode source, DeltaControlStructure delta) {
+        setTypeOfASTNode(ASTNodeType.RECBIND);
+        setLineNumberOfSourceFile(source.getLineNumberOfSourceFile());
+        this.delta = delta;
+    }
+
+    public DeltaControlStructure getDelta() {
+        return delta;
+    }
+}
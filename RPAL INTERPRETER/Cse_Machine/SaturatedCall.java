@@ -0,0 +1,32 @@
+package Cse_Machine;
+
+import Abstract_Syntax_Tree.ASTNode;
+import Abstract_Syntax_Tree.ASTNodeType;
+
+/**
+ * An application of a function to several arguments at once, 'f a1 ... an'. When f turns out to be a closure (or
+ * the eta of a 'rec' function) whose delta takes at least n arguments before doing any work (see
+ * {@link DeltaControlStructure#getCurriedChain()}), the CSE machine binds all n arguments in one frame and runs
+ * the nth delta's body, without building the n - 1 closures in between. Any other rator, including a function
+ * of lower arity, is applied one argument at a time through the gammas this node replaces.
+ */
+public class SaturatedCall extends ASTNode {
+    private final GammaSite[] sites;
+
+    /**
+     * @param sites the gammas of the application, innermost ('f a1') first
+     */
+    public SaturatedCall(ASTNode source, GammaSite[] sites) {
+        setTypeOfASTNode(ASTNodeType.CALL);
+        setLineNumberOfSourceFile(source.getLineNumberOfSourceFile());
+        this.sites = sites;
+    }
+
+    public int getArity() {
+        return sites.length;
+    }
+
+    public GammaSite[] getSites() {
+        return sites;
+    }
+}
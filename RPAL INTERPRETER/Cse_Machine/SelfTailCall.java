@@ -0,0 +1,42 @@
+package Cse_Machine;
+
+import Abstract_Syntax_Tree.ASTNode;
+import Abstract_Syntax_Tree.ASTNodeType;
+
+/**
+ * A 'rec' function calling itself in tail position with all its arguments, compiled into a jump: the arguments
+ * are bound to a fresh frame for the function's deltas and the innermost delta's body starts over, in the
+ * environment that binds the function's own name. A fresh frame is needed rather than rebinding the current one,
+ * since a closure made from a partial application may still refer to it.
+ */
+public class SelfTailCall extends ASTNode {
+    private final String functionName;
+    private final DeltaControlStructure[] deltas;
+    private final boolean tupleElements;
+
+    /**
+     * @param functionName the name the 'rec' binds
+     * @param deltas the deltas of the function's lambdas, outermost first, one per argument
+     * @param tupleElements true if the function takes a single tuple parameter and the call passes the
+     *                      elements of a tuple written out at the call instead of a tuple
+     */
+    public SelfTailCall(ASTNode source, String functionName, DeltaControlStructure[] deltas, boolean tupleElements) {
+        setTypeOfASTNode(ASTNodeType.LOOP);
+        setLineNumberOfSourceFile(source.getLineNumberOfSourceFile());
+        this.functionName = functionName;
+        this.deltas = deltas;
+        this.tupleElements = tupleElements;
+    }
+
+    public String getFunctionName() {
+        return functionName;
+    }
+
+    public DeltaControlStructure[] getDeltas() {
+        return deltas;
+    }
+
+    public boolean passesTupleElements() {
+        return tupleElements;
+    }
+}
@@ -0,0 +1,40 @@
+package Cse_Machine;
+
+import Abstract_Syntax_Tree.ASTNode;
+import Abstract_Syntax_Tree.ASTNodeType;
+
+/**
+ * An 'or' or '&amp;' that evaluates its left operand first and its right operand only when the left one does not
+ * decide the result. It is only compiled for a right operand that is known to be a truth value and to have no
+ * effect, so skipping it changes nothing but the time taken.
+ */
+public class ShortCircuit extends ASTNode {
+    private final ASTNode operator;
+    private final ASTNode[] rightBody;
+
+    /**
+     * @param operator the OR or AND node, which still applies the operator when the left operand is not a truth value
+     * @param rightBody the compiled right operand
+     */
+    public ShortCircuit(ASTNode operator, ASTNode[] rightBody) {
+        setTypeOfASTNode(ASTNodeType.SHORT_CIRCUIT);
+        setLineNumberOfSourceFile(operator.getLineNumberOfSourceFile());
+        this.operator = operator;
+        this.rightBody = rightBody;
+    }
+
+    public ASTNode getOperator() {
+        return operator;
+    }
+
+    public ASTNode[] getRightBody() {
+        return rightBody;
+    }
+
+    /**
+     * @return the truth value that decides the result on its own: true for 'or', false for '&amp;'
+     */
+    public TruthValue getDecidingValue() {
+        return TruthValue.valueOf(operator.getTypeOfASTNode() == ASTNodeType.OR);
+    }
+}
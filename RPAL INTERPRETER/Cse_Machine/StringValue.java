@@ -0,0 +1,121 @@
+package Cse_Machine;
+
+import java.util.ArrayDeque;
+
+/**
+ * An RPAL string. Escape sequences such as '\n' are kept as written and only expanded when the result is printed.
+ * <p>
+ * A string is either a slice (offset and length) of a Java String or the concatenation of two strings, so Conc
+ * builds an O(1) node and Stem and Stern return O(1) views instead of copying. A concatenation is flattened into
+ * one String the first time its characters are needed (Stem, Stern, comparison, printing) and keeps that
+ * flattened form, so a program that builds a string with Conc and then walks it with Stern copies it only once.
+ * </p>
+ * <p>
+ * A string only changes by being flattened or by keeping its characters as a String of their own, and both are
+ * safe when tuple components evaluated on other threads share it: the parts of a concatenation are dropped
+ * through a volatile field only after the flattened text is set, a slice never changes its offset, and a String
+ * is immutable, so a thread sees either the string's old state or its complete new one.
+ * </p>
+ */
+public class StringValue extends RPALValue {
+    private String text;                 // null while this is an unflattened concatenation
+    private final int offset;
+    private final int length;
+    private volatile StringValue[] parts; // the two parts of a concatenation, dropped once it is flattened
+    private String exactText;            // the characters as a String of their own, once asked for
+
+    public StringValue(String value) {
+        this(value, 0, value.length());
+    }
+
+    private StringValue(String text, int offset, int length) {
+        this.text = text;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    private StringValue(StringValue left, StringValue right) {
+        this.offset = 0;
+        this.length = left.length + right.length;
+        this.parts = new StringValue[]{left, right};
+    }
+
+    public int length() {
+        return length;
+    }
+
+    /**
+     * @return this string followed by the given one
+     */
+    public StringValue concat(StringValue other) {
+        if (other.length == 0)
+            return this;
+        if (length == 0)
+            return other;
+        return new StringValue(this, other);
+    }
+
+    /**
+     * @return the first character (Stem), or the empty string if this one is empty
+     */
+    public StringValue first() {
+        if (length <= 1)
+            return this;
+        return new StringValue(flattened(), offset, 1);
+    }
+
+    /**
+     * @return all but the first character (Stern), or the empty string if this one is empty
+     */
+    public StringValue rest() {
+        if (length == 0)
+            return this;
+        return new StringValue(flattened(), offset + 1, length - 1);
+    }
+
+    public String getStringValue() {
+        String exact = exactText;
+        if (exact == null) {
+            String flat = flattened();
+            exact = offset == 0 && length == flat.length() ? flat : flat.substring(offset, offset + length);
+            exactText = exact;
+        }
+        return exact;
+    }
+
+    public boolean contentEquals(StringValue other) {
+        return length == other.length && getStringValue().equals(other.getStringValue());
+    }
+
+    // The text this string is a slice of. Copies the leaves of a concatenation left to right without recursing,
+    // since Conc in a loop builds a tree as deep as it is long
+    private String flattened() {
+        String flat = text;
+        if (flat != null)
+            return flat;
+        char[] characters = new char[length];
+        int position = 0;
+        ArrayDeque<StringValue> pending = new ArrayDeque<>();
+        pending.push(this);
+        while (!pending.isEmpty()) {
+            StringValue part = pending.pop();
+            StringValue[] partParts = part.parts; //read first: null means the text is set
+            if (partParts == null) {
+                part.text.getChars(part.offset, part.offset + part.length, characters, position);
+                position += part.length;
+            } else {
+                pending.push(partParts[1]);
+                pending.push(partParts[0]);
+            }
+        }
+        flat = new String(characters);
+        text = flat;
+        parts = null;
+        return flat;
+    }
+
+    @Override
+    public String getPrintValue() {
+        return getStringValue();
+    }
+}
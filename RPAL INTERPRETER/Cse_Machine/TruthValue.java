@@ -0,0 +1,29 @@
+package Cse_Machine;
+
+/**
+ * An RPAL truthvalue. There are exactly two instances, {@link #TRUE} and {@link #FALSE}, so truthvalues can be
+ * compared by reference.
+ */
+public class TruthValue extends RPALValue {
+    public static final TruthValue TRUE = new TruthValue(true);
+    public static final TruthValue FALSE = new TruthValue(false);
+
+    private final boolean value;
+
+    private TruthValue(boolean value) {
+        this.value = value;
+    }
+
+    public static TruthValue valueOf(boolean value) {
+        return value ? TRUE : FALSE;
+    }
+
+    public boolean getBooleanValue() {
+        return value;
+    }
+
+    @Override
+    public String getPrintValue() {
+        return Boolean.toString(value);
+    }
+}
@@ -1,53 +1,254 @@
 package Cse_Machine;
 
-import Abstract_Syntax_Tree.ASTNode;
-import Abstract_Syntax_Tree.ASTNodeType;
+import java.util.Arrays;
 
 /**
- * Represents a linked sequence of AST nodes as a Tuple.
+ * Represents an immutable sequence of values as a Tuple.
  * Renders itself in Lisp-style notation: (elem1, elem2, …).
+ * <p>
+ * The elements are kept in a persistent vector: a trie with 32-way branching whose leaves hold 32 elements each,
+ * plus a separate tail array holding the last (up to 32) elements. Selection walks at most log32(n) levels, the
+ * length is stored, and {@link #append(RPALValue)} copies only the tail, or the path from the root to the new
+ * leaf once the tail is full, sharing everything else with the original tuple. Building an n-element list with
+ * 'aug' is therefore O(n log n) rather than O(n²), and the original tuple is never modified.
+ * </p>
+ * <p>
+ * Tuples of only integers (that fit in a long) or only strings keep their leaves as a packed long[] or String[]
+ * instead of an array of value objects. The first element of another kind appended to such a tuple makes the
+ * result fall back to the generic representation; selection, Order and printing do not see the difference.
+ * </p>
  */
-public class Tuple extends ASTNode {
+public class Tuple extends RPALValue {
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+
+    // What the leaves and the tail are: RPALValue[], long[] or String[]
+    private static final int GENERIC = 0;
+    private static final int INTEGERS = 1;
+    private static final int STRINGS = 2;
+
+    private static final Node EMPTY_NODE = new Node(new Object[WIDTH]);
+
+    /**
+     * The empty tuple. Every nil is this instance.
+     */
+    public static final Tuple NIL = new Tuple(0, BITS, EMPTY_NODE, new RPALValue[0], GENERIC);
+
+    private final int count;
+    private final int shift;           // height of the trie, in bits of the index
+    private final Node root;
+    private final Object tail;
+    private final int kind;
+
+    private Tuple(int count, int shift, Node root, Object tail, int kind) {
+        this.count = count;
+        this.shift = shift;
+        this.root = root;
+        this.tail = tail;
+        this.kind = kind;
+    }
 
     /**
-     * Initialize this node’s type to TUPLE.
+     * Create a tuple of the given elements. The array is owned by the tuple from here on.
      */
-    public Tuple() {
-        setTypeOfASTNode(ASTNodeType.TUPLE);
+    public static Tuple of(RPALValue[] elements) {
+        if (elements.length == 0)
+            return NIL;
+        int kind = kindOf(elements[0]);
+        for (int i = 1; i < elements.length && kind != GENERIC; i++)
+            if (kindOf(elements[i]) != kind)
+                kind = GENERIC;
+
+        if (elements.length <= WIDTH)
+            return new Tuple(elements.length, BITS, EMPTY_NODE, kind == GENERIC ? elements : pack(elements, kind), kind);
+        Tuple tuple = new Tuple(0, BITS, EMPTY_NODE, newLeaf(kind, 0), kind);
+        for (RPALValue element : elements)
+            tuple = tuple.appendSameKind(element);
+        return tuple;
+    }
+
+    private static int kindOf(RPALValue value) {
+        if (value instanceof IntegerValue && ((IntegerValue) value).isLong())
+            return INTEGERS;
+        if (value instanceof StringValue)
+            return STRINGS;
+        return GENERIC;
+    }
+
+    private static Object pack(RPALValue[] elements, int kind) {
+        Object leaf = newLeaf(kind, elements.length);
+        for (int i = 0; i < elements.length; i++)
+            store(leaf, kind, i, elements[i]);
+        return leaf;
+    }
+
+    private static Object newLeaf(int kind, int length) {
+        return switch (kind) {
+            case INTEGERS -> new long[length];
+            case STRINGS -> new String[length];
+            default -> new RPALValue[length];
+        };
+    }
+
+    private static Object copyLeaf(Object leaf, int kind, int newLength) {
+        return switch (kind) {
+            case INTEGERS -> Arrays.copyOf((long[]) leaf, newLength);
+            case STRINGS -> Arrays.copyOf((String[]) leaf, newLength);
+            default -> Arrays.copyOf((RPALValue[]) leaf, newLength);
+        };
+    }
+
+    private static void store(Object leaf, int kind, int i, RPALValue element) {
+        switch (kind) {
+            case INTEGERS -> ((long[]) leaf)[i] = ((IntegerValue) element).getLongValue();
+            case STRINGS -> ((String[]) leaf)[i] = ((StringValue) element).getStringValue();
+            default -> ((RPALValue[]) leaf)[i] = element;
+        }
+    }
+
+    private static RPALValue load(Object leaf, int kind, int i) {
+        return switch (kind) {
+            case INTEGERS -> IntegerValue.valueOf(((long[]) leaf)[i]);
+            case STRINGS -> new StringValue(((String[]) leaf)[i]);
+            default -> ((RPALValue[]) leaf)[i];
+        };
+    }
+
+    public int size() {
+        return count;
     }
 
     /**
-     * Builds a parenthesized, comma-separated string of values
-     * from this tuple’s child and its siblings.
+     * Get the nth element of the tuple. Note that n starts from 1 and NOT 0.
+     *
+     * @return the element, or null if n is out of bounds
+     */
+    public RPALValue get(int n) {
+        if (n < 1 || n > count)
+            return null;
+        int i = n - 1;
+        return load(leafFor(i), kind, i & MASK);
+    }
+
+    /**
+     * @return a new tuple holding this tuple's elements followed by the given one; this tuple is unchanged
+     */
+    public Tuple append(RPALValue element) {
+        if (count == 0)
+            return of(new RPALValue[]{element});
+        if (kind != GENERIC && kindOf(element) != kind)
+            return toGeneric().appendSameKind(element);
+        return appendSameKind(element);
+    }
+
+    private Tuple toGeneric() {
+        Tuple generic = NIL;
+        for (int n = 1; n <= count; n++)
+            generic = generic.appendSameKind(get(n));
+        return generic;
+    }
+
+    // Append an element that can be stored in this tuple's kind of leaf
+    private Tuple appendSameKind(RPALValue element) {
+        int tailLength = count - tailOffset();
+
+        //room in the tail: copy just the tail
+        if (tailLength < WIDTH) {
+            Object newTail = copyLeaf(tail, kind, tailLength + 1);
+            store(newTail, kind, tailLength, element);
+            return new Tuple(count + 1, shift, root, newTail, kind);
+        }
+
+        //full tail: push it into the trie as a leaf and start a new tail
+        Node newRoot;
+        int newShift = shift;
+        if ((count >>> BITS) > (1 << shift)) { //the trie is full, add a level on top
+            newRoot = new Node(new Object[WIDTH]);
+            newRoot.array[0] = root;
+            newRoot.array[1] = newPath(shift, tail);
+            newShift += BITS;
+        } else
+            newRoot = pushTail(shift, root, tail);
+        Object newTail = newLeaf(kind, 1);
+        store(newTail, kind, 0, element);
+        return new Tuple(count + 1, newShift, newRoot, newTail, kind);
+    }
+
+    // Index of the first element held in the tail
+    private int tailOffset() {
+        if (count < WIDTH)
+            return 0;
+        return ((count - 1) >>> BITS) << BITS;
+    }
+
+    // The leaf (or the tail) holding the element at the given 0-based index
+    private Object leafFor(int i) {
+        if (i >= tailOffset())
+            return tail;
+        Node node = root;
+        for (int level = shift; level > BITS; level -= BITS)
+            node = (Node) node.array[(i >>> level) & MASK];
+        return node.array[(i >>> BITS) & MASK];
+    }
+
+    // Copies the path from parent down to where the full tail goes, and hangs the tail there
+    private Node pushTail(int level, Node parent, Object tailLeaf) {
+        int subIndex = ((count - 1) >>> level) & MASK;
+        Node result = new Node(parent.array.clone());
+        Object toInsert;
+        if (level == BITS)
+            toInsert = tailLeaf;
+        else {
+            Node child = (Node) parent.array[subIndex];
+            toInsert = child != null ? pushTail(level - BITS, child, tailLeaf) : newPath(level - BITS, tailLeaf);
+        }
+        result.array[subIndex] = toInsert;
+        return result;
+    }
+
+    // A chain of single-child nodes leading down to the given leaf
+    private static Object newPath(int level, Object leaf) {
+        if (level == 0)
+            return leaf;
+        Node result = new Node(new Object[WIDTH]);
+        result.array[0] = newPath(level - BITS, leaf);
+        return result;
+    }
+
+    /**
+     * Builds a parenthesized, comma-separated string of the element values.
      *
      * @return "nil" if empty, otherwise "(v1, v2, ..., vN)"
      */
     @Override
-    public String getValueOfASTNode() {
-        ASTNode current = getChildOfASTNode();
-        if (current == null) {
+    public String getPrintValue() {
+        if (count == 0) {
             return "nil";
         }
 
         StringBuilder builder = new StringBuilder("(");
-        // Traverse through each sibling except the last
-        while (current.getSiblingOfASTNode() != null) {
-            builder.append(current.getValueOfASTNode())
-                    .append(", ");
-            current = current.getSiblingOfASTNode();
+        for (int i = 0; i < count; i += WIDTH) {
+            Object leaf = leafFor(i);
+            for (int j = 0; j < WIDTH && i + j < count; j++) {
+                if (i + j > 0)
+                    builder.append(", ");
+                switch (kind) {
+                    case INTEGERS -> builder.append(((long[]) leaf)[j]);
+                    case STRINGS -> builder.append(((String[]) leaf)[j]);
+                    default -> builder.append(((RPALValue[]) leaf)[j].getPrintValue());
+                }
+            }
         }
-        // Append the final element without a trailing comma
-        builder.append(current.getValueOfASTNode())
-                .append(")");
-        return builder.toString();
+        return builder.append(")").toString();
     }
 
-    /**
-     * Delegate duplication to the provided Node_Duplication instance.
-     */
-    @Override
-    public Tuple acceptASTNode(Node_Duplication copier) {
-        return copier.takecopy(this);
+    // An interior node of the trie; its children are Nodes, or leaf arrays on the level just above the leaves
+    private static class Node {
+        final Object[] array;
+
+        Node(Object[] array) {
+            this.array = array;
+        }
     }
 }
-
@@ -0,0 +1,33 @@
+package Cse_Machine;
+
+import Abstract_Syntax_Tree.ASTNode;
+import Abstract_Syntax_Tree.ASTNodeType;
+
+/**
+ * An application of a function to a tuple written out at the call, 'f (e1, ..., en)', including the simultaneous
+ * definition 'let x1, ..., xn = e1, ..., en'. When f turns out to be a closure over a delta with the parameters
+ * (x1, ..., xn), the CSE machine binds e1 ... en straight into the new frame and never builds the tuple. Any other
+ * rator gets the tuple, built from the same values, through the gamma this node replaces.
+ */
+public class TupleArgumentCall extends ASTNode {
+    private final GammaSite site;
+    private final int width;
+
+    /**
+     * @param width the number of elements of the tuple
+     */
+    public TupleArgumentCall(ASTNode source, GammaSite site, int width) {
+        setTypeOfASTNode(ASTNodeType.CALL_TUPLE);
+        setLineNumberOfSourceFile(source.getLineNumberOfSourceFile());
+        this.site = site;
+        this.width = width;
+    }
+
+    public GammaSite getSite() {
+        return site;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+}
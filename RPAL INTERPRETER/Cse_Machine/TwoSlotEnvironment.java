@@ -0,0 +1,30 @@
+package Cse_Machine;
+
+/**
+ * An environment binding at most two names, e.g. for 'fn (x, y). ...'.
+ */
+final class TwoSlotEnvironment extends Environment {
+    private String name1, name2;
+    private RPALValue value1, value2;
+
+    @Override
+    public void addMapping(String key, RPALValue value) {
+        if (name1 == null || name1.equals(key)) {
+            name1 = key;
+            value1 = value;
+        } else if (name2 == null || name2.equals(key)) {
+            name2 = key;
+            value2 = value;
+        } else
+            throw new IllegalStateException("Environment is full, cannot bind \"" + key + "\"");
+    }
+
+    @Override
+    protected RPALValue find(String key) {
+        if (key.equals(name1))
+            return value1;
+        if (key.equals(name2))
+            return value2;
+        return null;
+    }
+}
@@ -0,0 +1,24 @@
+package Cse_Machine;
+
+import Abstract_Syntax_Tree.ASTNode;
+import Abstract_Syntax_Tree.ASTNodeType;
+
+/**
+ * An operator whose operands were shown before evaluation to always have the types it expects, so the CSE machine
+ * applies it without checking them: integer arithmetic and comparisons (including eq and ne on integers), not,
+ * neg, or, &amp; and aug.
+ */
+public class VerifiedOperation extends ASTNode {
+    private final ASTNodeType operator;
+
+    public VerifiedOperation(ASTNode source) {
+        setTypeOfASTNode(ASTNodeType.VERIFIED);
+        setValueOfASTNode(source.getValueOfASTNode());
+        setLineNumberOfSourceFile(source.getLineNumberOfSourceFile());
+        this.operator = source.getTypeOfASTNode();
+    }
+
+    public ASTNodeType getOperator() {
+        return operator;
+    }
+}
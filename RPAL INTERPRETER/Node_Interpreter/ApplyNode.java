@@ -0,0 +1,41 @@
+package Node_Interpreter;
+
+import Cse_Machine.Closure;
+import Cse_Machine.Environment;
+import Cse_Machine.RPALValue;
+
+/**
+ * An application that has not been executed yet, or that has applied more than one kind of function.
+ * <p>
+ * When its first function is a closure taking all the arguments at once, an uninitialized node replaces itself by
+ * a {@link DirectCallNode} for that closure's delta. Otherwise, and once a direct call fell back to it, it applies
+ * whatever function it is given.
+ * </p>
+ */
+final class ApplyNode extends CallNode {
+    private boolean uninitialized;
+
+    ApplyNode(NodeInterpreter interpreter, ExecutableNode rator, ExecutableNode[] arguments, int[] lines,
+              int[] bindingLines, boolean tail) {
+        super(interpreter, rator, arguments, lines, bindingLines, tail);
+        uninitialized = true;
+    }
+
+    // The generic form of the given call
+    ApplyNode(CallNode call) {
+        super(call);
+    }
+
+    @Override
+    RPALValue execute(Environment env) {
+        RPALValue[] values = evaluateArguments(env);
+        RPALValue function = rator.execute(env);
+        if (uninitialized) {
+            uninitialized = false;
+            Closure closure = closureOf(function);
+            if (closure != null && closure.getDelta().getCurriedArity() >= values.length)
+                return replace(new DirectCallNode(this, closure.getDelta())).call(closure, values);
+        }
+        return callGenerically(function, values);
+    }
+}
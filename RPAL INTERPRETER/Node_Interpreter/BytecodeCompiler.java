@@ -0,0 +1,179 @@
+package Node_Interpreter;
+
+import Abstract_Syntax_Tree.ASTNodeType;
+
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles the tree of a hot delta body into the method of a hidden class, which HotSpot then compiles like any
+ * other Java method. Each node writes its own code (see {@link ExecutableNode#compile(BytecodeCompiler)}): the
+ * children's values are kept in local variables instead of being returned through the tree, and every node
+ * compiles to what it has specialized to so far. An integer operator checks its operands and a direct call checks
+ * its delta. When a check fails the code deoptimizes (see {@link #deoptimize()}) and that one operation is done
+ * generically; everything else calls the same code the nodes run.
+ * <p>
+ * The nodes, deltas and values the code needs are handed to the class's constructor in an array, and the code
+ * gets them from there. The environment the body runs in is the method's parameter.
+ * </p>
+ */
+final class BytecodeCompiler {
+    static final String VALUE_TYPE = "Cse_Machine/RPALValue";
+    static final String VALUE = "L" + VALUE_TYPE + ";";
+    static final String VALUES = "[" + VALUE;
+    static final String ENVIRONMENT = "LCse_Machine/Environment;";
+    static final String OPERATOR = "LAbstract_Syntax_Tree/ASTNodeType;";
+    static final String BINARY_OPERATION = "(" + OPERATOR + "I" + VALUE + VALUE + ")" + VALUE; // with the line
+
+    private static final String CLASS_NAME = "Node_Interpreter/CompiledDelta";
+    private static final String CONSTANTS = "constants";
+    private static final String CONSTANTS_TYPE = "[Ljava/lang/Object;";
+    private static final int THIS = 0;
+    private static final int ENVIRONMENT_PARAMETER = 1;
+
+    private final long threshold;
+    private final MethodHandles.Lookup lookup = MethodHandles.lookup(); // defines the classes in this package
+
+    // The body being compiled
+    private FunctionBodyNode function;
+    private ClassFileWriter code;
+    private List<Object> constants;
+    private Map<Object, Integer> constantIndexes;
+    private int temporaries; // local variables in use after the parameters
+
+    /**
+     * @param threshold invocations after which a body is compiled
+     */
+    BytecodeCompiler(long threshold) {
+        this.threshold = threshold;
+    }
+
+    long getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * @return the compiled code of the tree, or null if it does not fit in a method
+     */
+    CompiledBody compile(ExecutableNode tree, FunctionBodyNode function) {
+        this.function = function;
+        code = new ClassFileWriter(CLASS_NAME);
+        constants = new ArrayList<>();
+        constantIndexes = new IdentityHashMap<>();
+        temporaries = 0;
+        byte[] classFile;
+        try {
+            code.addField(ClassFileWriter.ACC_PRIVATE | ClassFileWriter.ACC_FINAL, CONSTANTS, CONSTANTS_TYPE);
+            code.beginMethod(ClassFileWriter.ACC_PUBLIC, "<init>", "(" + CONSTANTS_TYPE + ")V", 2);
+            code.loadLocal(THIS);
+            code.invoke(ClassFileWriter.INVOKESPECIAL, "java/lang/Object", "<init>", "()V");
+            code.loadLocal(THIS);
+            code.loadLocal(1);
+            code.field(ClassFileWriter.PUTFIELD, CLASS_NAME, CONSTANTS, CONSTANTS_TYPE);
+            code.op(ClassFileWriter.RETURN);
+            code.endMethod();
+
+            code.beginMethod(ClassFileWriter.ACC_PUBLIC, "run", "(" + ENVIRONMENT + ")" + VALUE, 2);
+            tree.compile(this);
+            code.op(ClassFileWriter.ARETURN);
+            code.endMethod();
+            classFile = code.toByteArray("Node_Interpreter/CompiledBody");
+        } catch (IllegalStateException ex) { //a method, or the constant pool, too large
+            return null;
+        } finally {
+            this.function = null;
+            code = null;
+        }
+
+        try {
+            Class<?> compiled = lookup.defineHiddenClass(classFile, true).lookupClass();
+            return (CompiledBody) compiled.getConstructor(Object[].class).newInstance((Object) constants.toArray());
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException("Cannot load the compiled code", ex);
+        }
+    }
+
+    ClassFileWriter code() {
+        return code;
+    }
+
+    void loadEnvironment() {
+        code.loadLocal(ENVIRONMENT_PARAMETER);
+    }
+
+    /**
+     * Load the given object, cast to the given class.
+     */
+    void loadConstant(Object value, String className) {
+        Integer index = constantIndexes.get(value);
+        if (index == null) {
+            index = constants.size();
+            constants.add(value);
+            constantIndexes.put(value, index);
+        }
+        code.loadLocal(THIS);
+        code.field(ClassFileWriter.GETFIELD, CLASS_NAME, CONSTANTS, CONSTANTS_TYPE);
+        code.pushInt(index);
+        code.op(ClassFileWriter.AALOAD);
+        code.type(ClassFileWriter.CHECKCAST, className);
+    }
+
+    void loadOperator(ASTNodeType operator) {
+        code.field(ClassFileWriter.GETSTATIC, "Abstract_Syntax_Tree/ASTNodeType", operator.name(), OPERATOR);
+    }
+
+    /**
+     * Run the node on the tree, for a node that only builds a value from the environment.
+     */
+    void executeNode(ExecutableNode node) {
+        loadConstant(node, "Node_Interpreter/ExecutableNode");
+        loadEnvironment();
+        code.invoke(ClassFileWriter.INVOKEVIRTUAL, "Node_Interpreter/ExecutableNode", "execute",
+                "(" + ENVIRONMENT + ")" + VALUE);
+    }
+
+    /**
+     * Evaluate the nodes, the last first, into an array.
+     *
+     * @return the local variable holding the array, to be released with {@link #releaseTemporary()}
+     */
+    int compileValues(ExecutableNode[] nodes) {
+        int values = newTemporary();
+        code.pushInt(nodes.length);
+        code.type(ClassFileWriter.ANEWARRAY, VALUE_TYPE);
+        code.storeLocal(values);
+        for (int i = nodes.length - 1; i >= 0; i--) {
+            code.loadLocal(values);
+            code.pushInt(i);
+            nodes[i].compile(this);
+            code.op(ClassFileWriter.AASTORE);
+        }
+        return values;
+    }
+
+    /**
+     * @return a local variable free until the matching {@link #releaseTemporary()}; they are released in the
+     * reverse order
+     */
+    int newTemporary() {
+        return ENVIRONMENT_PARAMETER + 1 + temporaries++;
+    }
+
+    void releaseTemporary() {
+        temporaries--;
+    }
+
+    /**
+     * Add the code a failed check branches to: it drops the compiled code, so the body runs on its tree from its
+     * next invocation. The node then finishes its operation with generic code.
+     */
+    void deoptimize() {
+        loadConstant(function, "Node_Interpreter/FunctionBodyNode");
+        code.loadLocal(THIS);
+        code.invoke(ClassFileWriter.INVOKEVIRTUAL, "Node_Interpreter/FunctionBodyNode", "deoptimize",
+                "(LNode_Interpreter/CompiledBody;)V");
+    }
+}
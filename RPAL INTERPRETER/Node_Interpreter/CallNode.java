@@ -0,0 +1,91 @@
+package Node_Interpreter;
+
+import Cse_Machine.Closure;
+import Cse_Machine.DeltaControlStructure;
+import Cse_Machine.Environment;
+import Cse_Machine.EtaRecursiveFixedPoint;
+import Cse_Machine.RPALValue;
+
+/**
+ * An application of a function to one or more arguments, 'R a1 ... an', from nested gammas or a saturated call.
+ * The arguments are evaluated an first and the function last, as on the CSE machine. {@link ApplyNode} and
+ * {@link DirectCallNode} are its generic and specialized forms, and replace one another keeping the same children.
+ */
+abstract class CallNode extends ExecutableNode {
+    final NodeInterpreter interpreter;
+    ExecutableNode rator;
+    final ExecutableNode[] arguments; // a1 first
+    final int[] lines; // of the application to each argument
+    final int[] bindingLines; // reported when binding an argument in one frame with the others fails
+    final boolean tail;
+
+    CallNode(NodeInterpreter interpreter, ExecutableNode rator, ExecutableNode[] arguments, int[] lines,
+             int[] bindingLines, boolean tail) {
+        this.interpreter = interpreter;
+        this.rator = adopt(rator);
+        this.arguments = arguments;
+        for (ExecutableNode argument : arguments)
+            adopt(argument);
+        this.lines = lines;
+        this.bindingLines = bindingLines;
+        this.tail = tail;
+    }
+
+    // A call of the same shape with the children of the given one, which it replaces
+    CallNode(CallNode call) {
+        this(call.interpreter, call.rator, call.arguments, call.lines, call.bindingLines, call.tail);
+    }
+
+    RPALValue[] evaluateArguments(Environment env) {
+        RPALValue[] values = new RPALValue[arguments.length];
+        for (int i = values.length - 1; i >= 0; i--)
+            values[i] = arguments[i].execute(env);
+        return values;
+    }
+
+    /**
+     * Apply the function to the arguments whatever it is. A closure that takes them all before doing any work
+     * gets them in one frame; anything else is applied to one argument at a time.
+     */
+    RPALValue callGenerically(RPALValue function, RPALValue[] values) {
+        Closure closure = closureOf(function);
+        if (closure != null && closure.getDelta().getCurriedArity() >= values.length) {
+            DeltaControlStructure[] chain = closure.getDelta().getCurriedChain();
+            Environment env = interpreter.bindAll(bindingLines, chain, values, closure.getLinkedEnv());
+            return interpreter.enter(interpreter.bodyOf(chain[values.length - 1]), env, tail);
+        }
+        return interpreter.applyAll(lines, function, values, tail);
+    }
+
+    /**
+     * @return the closure applying the value runs, for a closure or the eta of a 'rec' function with parameters,
+     * or null
+     */
+    static Closure closureOf(RPALValue function) {
+        if (function instanceof Closure)
+            return (Closure) function;
+        if (function instanceof EtaRecursiveFixedPoint)
+            return ((EtaRecursiveFixedPoint) function).getUnrolledClosure();
+        return null;
+    }
+
+    // An uninitialized call, which has seen no function yet, compiles to a generic one
+    @Override
+    void compile(BytecodeCompiler compiler) {
+        int values = compiler.compileValues(arguments);
+        compiler.loadConstant(this, "Node_Interpreter/CallNode");
+        rator.compile(compiler);
+        compiler.code().loadLocal(values);
+        compiler.releaseTemporary();
+        compiler.code().invoke(ClassFileWriter.INVOKEVIRTUAL, "Node_Interpreter/CallNode", "callGenerically",
+                "(" + BytecodeCompiler.VALUE + BytecodeCompiler.VALUES + ")" + BytecodeCompiler.VALUE);
+    }
+
+    @Override
+    void replaceChild(ExecutableNode oldChild, ExecutableNode newChild) {
+        if (rator == oldChild)
+            rator = newChild;
+        else
+            replaceIn(arguments, oldChild, newChild);
+    }
+}
@@ -0,0 +1,407 @@
+package Node_Interpreter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a class file with the few instructions {@link BytecodeCompiler} emits: references, ints, strings, field
+ * accesses, calls and branches. It keeps track of the operand stack's depth as instructions are added, so it can
+ * fill in each method's max_stack, and patches branches once their labels are placed.
+ * <p>
+ * The class is written in version 49 (Java 5), which needs no StackMapTable: the JVM works out the types at
+ * branches itself, so a method may leave values under the ones it branches with as long as every path to a label
+ * leaves the same number of them.
+ * </p>
+ */
+final class ClassFileWriter {
+    static final int ACONST_NULL = 0x01;
+    static final int AALOAD = 0x32;
+    static final int AASTORE = 0x53;
+    static final int POP = 0x57;
+    static final int DUP = 0x59;
+    static final int IFEQ = 0x99;
+    static final int IFNE = 0x9a;
+    static final int IFLT = 0x9b;
+    static final int IFGE = 0x9c;
+    static final int IFGT = 0x9d;
+    static final int IFLE = 0x9e;
+    static final int IF_ACMPEQ = 0xa5;
+    static final int IF_ACMPNE = 0xa6;
+    static final int GOTO = 0xa7;
+    static final int ARETURN = 0xb0;
+    static final int RETURN = 0xb1;
+    static final int GETSTATIC = 0xb2;
+    static final int GETFIELD = 0xb4;
+    static final int PUTFIELD = 0xb5;
+    static final int INVOKEVIRTUAL = 0xb6;
+    static final int INVOKESPECIAL = 0xb7;
+    static final int INVOKESTATIC = 0xb8;
+    static final int INVOKEINTERFACE = 0xb9;
+    static final int NEW = 0xbb;
+    static final int ANEWARRAY = 0xbd;
+    static final int ATHROW = 0xbf;
+    static final int CHECKCAST = 0xc0;
+    static final int INSTANCEOF = 0xc1;
+    static final int IFNULL = 0xc6;
+    static final int IFNONNULL = 0xc7;
+
+    static final int ACC_PUBLIC = 0x0001;
+    static final int ACC_PRIVATE = 0x0002;
+    static final int ACC_FINAL = 0x0010;
+    private static final int ACC_SUPER = 0x0020;
+
+    private static final int CLASS_FILE_VERSION = 49;
+    private static final int MAX_BRANCH_OFFSET = Short.MAX_VALUE;
+
+    private final String className;
+    private final ByteArrayOutputStream constantPool = new ByteArrayOutputStream();
+    private final Map<String, Integer> constants = new HashMap<>(); // entry, keyed by its tag and contents
+    private int constantCount = 1; // entry 0 is unused
+    private final List<byte[]> fields = new ArrayList<>();
+    private final List<byte[]> methods = new ArrayList<>();
+
+    // The method being written
+    private int methodAccess;
+    private String methodName;
+    private String methodDescriptor;
+    private byte[] code;
+    private int length;
+    private int stack;
+    private int maxStack;
+    private int maxLocals;
+    private int[] labelOffsets; // -1 until placed
+    private int[] labelStacks; // depth of the stack at the label, -1 until a branch to it is seen
+    private int labelCount;
+    private final List<int[]> branches = new ArrayList<>(); // {offset of the instruction, label}
+
+    /**
+     * @param className internal name of the class, such as "Node_Interpreter/CompiledDelta"
+     */
+    ClassFileWriter(String className) {
+        this.className = className;
+    }
+
+    void addField(int access, String name, String descriptor) {
+        fields.add(new byte[]{(byte) (access >> 8), (byte) access,
+                (byte) (utf8(name) >> 8), (byte) utf8(name), (byte) (utf8(descriptor) >> 8), (byte) utf8(descriptor),
+                0, 0});
+    }
+
+    /**
+     * Start a method, whose code is added next and which ends with {@link #endMethod()}.
+     *
+     * @param parameterSlots local variables holding 'this' and the parameters
+     */
+    void beginMethod(int access, String name, String descriptor, int parameterSlots) {
+        methodAccess = access;
+        methodName = name;
+        methodDescriptor = descriptor;
+        code = new byte[256];
+        length = 0;
+        stack = 0;
+        maxStack = 0;
+        maxLocals = parameterSlots;
+        labelOffsets = new int[16];
+        labelStacks = new int[16];
+        labelCount = 0;
+        branches.clear();
+    }
+
+    void endMethod() {
+        if (length > 0xffff)
+            throw new IllegalStateException("Method " + methodName + " too large");
+        for (int[] branch : branches) {
+            int target = labelOffsets[branch[1]];
+            if (target < 0)
+                throw new IllegalStateException("Branch to a label never placed in " + methodName);
+            int offset = target - branch[0];
+            if (offset > MAX_BRANCH_OFFSET || offset < -MAX_BRANCH_OFFSET)
+                throw new IllegalStateException("Method " + methodName + " too large");
+            code[branch[0] + 1] = (byte) (offset >> 8);
+            code[branch[0] + 2] = (byte) offset;
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeShort(methodAccess);
+            out.writeShort(utf8(methodName));
+            out.writeShort(utf8(methodDescriptor));
+            out.writeShort(1); //the Code attribute
+            out.writeShort(utf8("Code"));
+            out.writeInt(12 + length);
+            out.writeShort(maxStack);
+            out.writeShort(maxLocals);
+            out.writeInt(length);
+            out.write(code, 0, length);
+            out.writeShort(0); //no exception handlers
+            out.writeShort(0); //no attributes
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+        methods.add(bytes.toByteArray());
+        code = null;
+    }
+
+    /**
+     * @return the class file of a final class extending Object and implementing the given interface
+     */
+    byte[] toByteArray(String interfaceName) {
+        int thisClass = classReference(className);
+        int superClass = classReference("java/lang/Object");
+        int implemented = classReference(interfaceName);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(CLASS_FILE_VERSION);
+            out.writeShort(constantCount);
+            constantPool.writeTo(out);
+            out.writeShort(ACC_FINAL | ACC_SUPER);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(1);
+            out.writeShort(implemented);
+            out.writeShort(fields.size());
+            for (byte[] field : fields)
+                out.write(field);
+            out.writeShort(methods.size());
+            for (byte[] method : methods)
+                out.write(method);
+            out.writeShort(0); //no attributes
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+        return bytes.toByteArray();
+    }
+
+    //  Instructions
+
+    void loadLocal(int index) {
+        local(0x19, index); //aload
+        push(1);
+    }
+
+    void storeLocal(int index) {
+        local(0x3a, index); //astore
+        push(-1);
+    }
+
+    void pushInt(int value) {
+        if (value >= -1 && value <= 5)
+            emit(0x03 + value); //iconst_<value>
+        else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            emit(0x10); //bipush
+            emit(value);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            emit(0x11); //sipush
+            emitShort(value);
+        } else
+            loadConstant(constant("I" + value, 3, value));
+        push(1);
+    }
+
+    void pushString(String value) {
+        loadConstant(constant("S" + value, 8, utf8(value)));
+        push(1);
+    }
+
+    void field(int opcode, String owner, String name, String descriptor) {
+        emit(opcode);
+        emitShort(memberReference(9, owner, name, descriptor));
+        int size = slotsOf(descriptor.charAt(0));
+        switch (opcode) {
+            case GETSTATIC -> push(size);
+            case GETFIELD -> push(size - 1);
+            case PUTFIELD -> push(-size - 1);
+            default -> throw new IllegalArgumentException("Not a field instruction: " + opcode);
+        }
+    }
+
+    void invoke(int opcode, String owner, String name, String descriptor) {
+        int arguments = 0;
+        int i = 1;
+        while (descriptor.charAt(i) != ')') {
+            arguments += slotsOf(descriptor.charAt(i));
+            i = endOfType(descriptor, i);
+        }
+        if (opcode != INVOKESTATIC)
+            arguments++; //the receiver
+        char returned = descriptor.charAt(i + 1);
+
+        emit(opcode);
+        if (opcode == INVOKEINTERFACE) {
+            emitShort(memberReference(11, owner, name, descriptor));
+            emit(arguments);
+            emit(0);
+        } else
+            emitShort(memberReference(10, owner, name, descriptor));
+        push((returned == 'V' ? 0 : slotsOf(returned)) - arguments);
+    }
+
+    /**
+     * new, anewarray, checkcast or instanceof
+     */
+    void type(int opcode, String className) {
+        emit(opcode);
+        emitShort(classReference(className));
+        if (opcode == NEW)
+            push(1);
+    }
+
+    /**
+     * An instruction without operands
+     */
+    void op(int opcode) {
+        emit(opcode);
+        switch (opcode) {
+            case ACONST_NULL, DUP -> push(1);
+            case POP, ARETURN, ATHROW -> push(-1);
+            case AALOAD -> push(-1);
+            case AASTORE -> push(-3);
+            case RETURN -> { }
+            default -> throw new IllegalArgumentException("Not an instruction without operands: " + opcode);
+        }
+    }
+
+    int newLabel() {
+        if (labelCount == labelOffsets.length) {
+            labelOffsets = Arrays.copyOf(labelOffsets, 2 * labelCount);
+            labelStacks = Arrays.copyOf(labelStacks, 2 * labelCount);
+        }
+        labelOffsets[labelCount] = -1;
+        labelStacks[labelCount] = -1;
+        return labelCount++;
+    }
+
+    void jump(int opcode, int label) {
+        branches.add(new int[]{length, label});
+        emit(opcode);
+        emitShort(0); //patched by endMethod()
+        switch (opcode) {
+            case IF_ACMPEQ, IF_ACMPNE -> push(-2);
+            case GOTO -> { }
+            default -> push(-1);
+        }
+        if (labelStacks[label] < 0)
+            labelStacks[label] = stack;
+        else if (labelStacks[label] != stack)
+            throw new IllegalStateException("Branches to a label with different stack depths in " + methodName);
+    }
+
+    /**
+     * Place the label before the next instruction. Code that only a branch reaches continues with the stack as
+     * the branch left it.
+     */
+    void mark(int label) {
+        labelOffsets[label] = length;
+        if (labelStacks[label] >= 0)
+            stack = labelStacks[label];
+    }
+
+    //  Encoding
+
+    private void local(int opcode, int index) {
+        if (index > 0xff)
+            throw new IllegalStateException("Too many local variables in " + methodName);
+        emit(opcode);
+        emit(index);
+        maxLocals = Math.max(maxLocals, index + 1);
+    }
+
+    private void loadConstant(int index) {
+        if (index <= 0xff) {
+            emit(0x12); //ldc
+            emit(index);
+        } else {
+            emit(0x13); //ldc_w
+            emitShort(index);
+        }
+    }
+
+    private void push(int slots) {
+        stack += slots;
+        maxStack = Math.max(maxStack, stack);
+    }
+
+    private void emit(int b) {
+        if (length == code.length)
+            code = Arrays.copyOf(code, 2 * length);
+        code[length++] = (byte) b;
+    }
+
+    private void emitShort(int s) {
+        emit(s >> 8);
+        emit(s);
+    }
+
+    private static int slotsOf(char type) {
+        return type == 'J' || type == 'D' ? 2 : 1;
+    }
+
+    // Index just past the type starting at i in a descriptor
+    private static int endOfType(String descriptor, int i) {
+        while (descriptor.charAt(i) == '[')
+            i++;
+        return descriptor.charAt(i) == 'L' ? descriptor.indexOf(';', i) + 1 : i + 1;
+    }
+
+    //  Constant pool
+
+    private int utf8(String value) {
+        Integer index = constants.get("U" + value);
+        if (index != null)
+            return index;
+        DataOutputStream out = new DataOutputStream(constantPool);
+        try {
+            out.writeByte(1);
+            out.writeUTF(value);
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+        return add("U" + value);
+    }
+
+    private int classReference(String internalName) {
+        return constant("C" + internalName, 7, utf8(internalName));
+    }
+
+    private int memberReference(int tag, String owner, String name, String descriptor) {
+        int nameAndType = constant("N" + name + ":" + descriptor, 12, utf8(name), utf8(descriptor));
+        return constant(tag + owner + "." + name + ":" + descriptor, tag, classReference(owner), nameAndType);
+    }
+
+    // An entry holding a u4, or a u2 index, or two of them
+    private int constant(String key, int tag, int... operands) {
+        Integer index = constants.get(key);
+        if (index != null)
+            return index;
+        DataOutputStream out = new DataOutputStream(constantPool);
+        try {
+            out.writeByte(tag);
+            if (tag == 3)
+                out.writeInt(operands[0]);
+            else
+                for (int operand : operands)
+                    out.writeShort(operand);
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+        return add(key);
+    }
+
+    private int add(String key) {
+        if (constantCount == 0xffff)
+            throw new IllegalStateException("Constant pool of " + className + " full");
+        constants.put(key, constantCount);
+        return constantCount++;
+    }
+}
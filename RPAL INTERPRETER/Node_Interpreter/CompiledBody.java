@@ -0,0 +1,15 @@
+package Node_Interpreter;
+
+import Cse_Machine.Environment;
+import Cse_Machine.RPALValue;
+
+/**
+ * A delta body compiled to bytecode by {@link BytecodeCompiler}: one hidden class per compilation, implementing this.
+ */
+interface CompiledBody {
+
+    /**
+     * @return what the body's top node would return
+     */
+    RPALValue run(Environment env);
+}
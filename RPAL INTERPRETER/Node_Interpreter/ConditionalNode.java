@@ -0,0 +1,63 @@
+package Node_Interpreter;
+
+import Cse_Machine.Environment;
+import Cse_Machine.RPALValue;
+import Cse_Machine.TruthValue;
+
+/**
+ * 'B -> T | E': the condition is evaluated first and then only the arm it selects (RULE 8). The arms of a
+ * conditional in tail position are in tail position too.
+ */
+final class ConditionalNode extends ExecutableNode {
+    private final int line;
+    private ExecutableNode condition;
+    private ExecutableNode thenArm;
+    private ExecutableNode elseArm;
+
+    ConditionalNode(int line, ExecutableNode condition, ExecutableNode thenArm, ExecutableNode elseArm) {
+        this.line = line;
+        this.condition = adopt(condition);
+        this.thenArm = adopt(thenArm);
+        this.elseArm = adopt(elseArm);
+    }
+
+    @Override
+    RPALValue execute(Environment env) {
+        return isTrue(condition.execute(env), line) ? thenArm.execute(env) : elseArm.execute(env);
+    }
+
+    @Override
+    void compile(BytecodeCompiler compiler) {
+        ClassFileWriter code = compiler.code();
+        condition.compile(compiler);
+        code.pushInt(line);
+        code.invoke(ClassFileWriter.INVOKESTATIC, "Node_Interpreter/ConditionalNode", "isTrue",
+                "(" + BytecodeCompiler.VALUE + "I)Z");
+        int otherwise = code.newLabel();
+        int end = code.newLabel();
+        code.jump(ClassFileWriter.IFEQ, otherwise);
+        thenArm.compile(compiler);
+        code.jump(ClassFileWriter.GOTO, end);
+        code.mark(otherwise);
+        elseArm.compile(compiler);
+        code.mark(end);
+    }
+
+    static boolean isTrue(RPALValue conditionResult, int line) {
+        if (conditionResult == TruthValue.TRUE)
+            return true;
+        if (conditionResult != TruthValue.FALSE)
+            NodeInterpreter.printEvaluationErrorToStdOut(line, "Expecting a truthvalue; found \"" + conditionResult.getPrintValue() + "\"");
+        return false;
+    }
+
+    @Override
+    void replaceChild(ExecutableNode oldChild, ExecutableNode newChild) {
+        if (condition == oldChild)
+            condition = newChild;
+        else if (thenArm == oldChild)
+            thenArm = newChild;
+        else if (elseArm == oldChild)
+            elseArm = newChild;
+    }
+}
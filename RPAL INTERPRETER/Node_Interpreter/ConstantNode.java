@@ -0,0 +1,25 @@
+package Node_Interpreter;
+
+import Cse_Machine.Environment;
+import Cse_Machine.RPALValue;
+
+/**
+ * A constant, whose value was built when the delta was compiled.
+ */
+final class ConstantNode extends ExecutableNode {
+    private final RPALValue value;
+
+    ConstantNode(RPALValue value) {
+        this.value = value;
+    }
+
+    @Override
+    RPALValue execute(Environment env) {
+        return value;
+    }
+
+    @Override
+    void compile(BytecodeCompiler compiler) {
+        compiler.loadConstant(value, BytecodeCompiler.VALUE_TYPE);
+    }
+}
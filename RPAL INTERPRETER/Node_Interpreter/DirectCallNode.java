@@ -0,0 +1,87 @@
+package Node_Interpreter;
+
+import Cse_Machine.Closure;
+import Cse_Machine.DeltaControlStructure;
+import Cse_Machine.Environment;
+import Cse_Machine.RPALValue;
+
+/**
+ * An application that has only applied closures over one delta taking all its arguments at once: a monomorphic
+ * call. The delta's chain, the size of the frame and the body to run are worked out once, so a call only checks
+ * the delta and binds the arguments. Any other function makes it replace itself by a generic {@link ApplyNode}.
+ */
+final class DirectCallNode extends CallNode {
+    private final DeltaControlStructure target;
+    private final DeltaControlStructure[] chain;
+    private final int slots;
+    private final FunctionBodyNode body;
+
+    DirectCallNode(CallNode call, DeltaControlStructure target) {
+        super(call);
+        this.target = target;
+        chain = target.getCurriedChain();
+        int slots = 0;
+        for (int i = 0; i < arguments.length; i++)
+            slots += chain[i].getBoundVars().size();
+        this.slots = slots;
+        body = interpreter.bodyOf(chain[arguments.length - 1]);
+    }
+
+    @Override
+    RPALValue execute(Environment env) {
+        RPALValue[] values = evaluateArguments(env);
+        RPALValue function = rator.execute(env);
+        if (!isTarget(function))
+            return replace(new ApplyNode(this)).callGenerically(function, values);
+        return call(closureOf(function), values);
+    }
+
+    // The call deoptimizes when the function is not a closure over the target delta
+    @Override
+    void compile(BytecodeCompiler compiler) {
+        ClassFileWriter code = compiler.code();
+        int values = compiler.compileValues(arguments);
+        rator.compile(compiler);
+        int function = compiler.newTemporary();
+        code.storeLocal(function);
+        int generic = code.newLabel();
+        int end = code.newLabel();
+        compiler.loadConstant(this, "Node_Interpreter/DirectCallNode");
+        code.loadLocal(function);
+        code.invoke(ClassFileWriter.INVOKEVIRTUAL, "Node_Interpreter/DirectCallNode", "isTarget",
+                "(" + BytecodeCompiler.VALUE + ")Z");
+        code.jump(ClassFileWriter.IFEQ, generic);
+
+        compiler.loadConstant(this, "Node_Interpreter/DirectCallNode");
+        code.loadLocal(function);
+        code.invoke(ClassFileWriter.INVOKESTATIC, "Node_Interpreter/CallNode", "closureOf",
+                "(" + BytecodeCompiler.VALUE + ")LCse_Machine/Closure;");
+        code.loadLocal(values);
+        code.invoke(ClassFileWriter.INVOKEVIRTUAL, "Node_Interpreter/DirectCallNode", "call",
+                "(LCse_Machine/Closure;" + BytecodeCompiler.VALUES + ")" + BytecodeCompiler.VALUE);
+        code.jump(ClassFileWriter.GOTO, end);
+
+        code.mark(generic);
+        compiler.deoptimize();
+        compiler.loadConstant(this, "Node_Interpreter/DirectCallNode");
+        code.loadLocal(function);
+        code.loadLocal(values);
+        compiler.releaseTemporary();
+        compiler.releaseTemporary();
+        code.invoke(ClassFileWriter.INVOKEVIRTUAL, "Node_Interpreter/CallNode", "callGenerically",
+                "(" + BytecodeCompiler.VALUE + BytecodeCompiler.VALUES + ")" + BytecodeCompiler.VALUE);
+        code.mark(end);
+    }
+
+    boolean isTarget(RPALValue function) {
+        Closure closure = closureOf(function);
+        return closure != null && closure.getDelta() == target;
+    }
+
+    RPALValue call(Closure closure, RPALValue[] values) {
+        Environment newEnv = Environment.create(closure.getLinkedEnv(), slots);
+        for (int i = 0; i < values.length; i++)
+            interpreter.bindArgument(bindingLines[i], chain[i], newEnv, values[i]);
+        return interpreter.enter(body, newEnv, tail);
+    }
+}
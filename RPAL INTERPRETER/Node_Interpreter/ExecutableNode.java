@@ -0,0 +1,64 @@
+package Node_Interpreter;
+
+import Cse_Machine.Environment;
+import Cse_Machine.RPALValue;
+
+/**
+ * A node of the tree a delta body is compiled into for the {@link NodeInterpreter}. Executing a node evaluates the
+ * expression it stands for in the given environment and returns its value.
+ * <p>
+ * A node may replace itself in its parent by a version specialized to what it has seen so far, such as integer
+ * operands or closures over a single delta, and a specialized node replaces itself by a generic one as soon as
+ * that no longer holds. Each node is a small class of its own, so the JVM can inline the nodes a body settles into.
+ * </p>
+ */
+abstract class ExecutableNode {
+    private ExecutableNode parent;
+
+    /**
+     * @return the value of the expression, or a {@link TailCall} for a node in tail position that applies a function
+     */
+    abstract RPALValue execute(Environment env);
+
+    /**
+     * Add code that leaves the node's value on the operand stack to the method being compiled. By default the code
+     * executes the node, which suits a node without children that never replaces itself.
+     */
+    void compile(BytecodeCompiler compiler) {
+        compiler.executeNode(this);
+    }
+
+    /**
+     * Make this node the parent of the child, so the child can replace itself later.
+     */
+    <T extends ExecutableNode> T adopt(T child) {
+        ExecutableNode node = child;
+        node.parent = this;
+        return child;
+    }
+
+    /**
+     * Put the given node in this one's place in its parent.
+     *
+     * @return the new node
+     */
+    <T extends ExecutableNode> T replace(T newNode) {
+        ExecutableNode node = newNode;
+        node.parent = parent;
+        parent.replaceChild(this, newNode);
+        return newNode;
+    }
+
+    /**
+     * Replace the given child of this node, which must have one.
+     */
+    void replaceChild(ExecutableNode oldChild, ExecutableNode newChild) {
+        throw new IllegalStateException(getClass().getSimpleName() + " has no children");
+    }
+
+    static void replaceIn(ExecutableNode[] children, ExecutableNode oldChild, ExecutableNode newChild) {
+        for (int i = 0; i < children.length; i++)
+            if (children[i] == oldChild)
+                children[i] = newChild;
+    }
+}
@@ -0,0 +1,75 @@
+package Node_Interpreter;
+
+import Cse_Machine.Environment;
+import Cse_Machine.RPALValue;
+
+/**
+ * The compiled body of a delta, compiled once and shared by every closure over it. It holds the body's top node,
+ * so that node can replace itself like any other.
+ * <p>
+ * With a {@link BytecodeCompiler}, the body counts its invocations, and once it is hot it runs compiled code in
+ * place of the tree until that code deoptimizes. A body deoptimized {@link #MAX_COMPILATIONS} times stays on the
+ * tree.
+ * </p>
+ */
+final class FunctionBodyNode extends ExecutableNode {
+    static final int MAX_COMPILATIONS = 3;
+
+    private final BytecodeCompiler compiler; // null unless hot bodies are compiled
+    private ExecutableNode body;
+    private CompiledBody code; // run in place of the tree, or null
+    private long invocations; // since the body was last deoptimized
+    private int compilations;
+
+    FunctionBodyNode(ExecutableNode body, BytecodeCompiler compiler) {
+        this.body = adopt(body);
+        this.compiler = compiler;
+    }
+
+    @Override
+    RPALValue execute(Environment env) {
+        return run(env);
+    }
+
+    /**
+     * Run the body in the given environment, and then each function it calls in tail position in turn, so a loop
+     * written as tail recursion runs in constant stack space.
+     */
+    RPALValue invoke(Environment env) {
+        RPALValue value = run(env);
+        while (value instanceof TailCall) {
+            TailCall call = (TailCall) value;
+            value = call.getBody().run(call.getEnv());
+        }
+        return value;
+    }
+
+    private RPALValue run(Environment env) {
+        if (code != null)
+            return code.run(env);
+        if (compiler != null && ++invocations == compiler.getThreshold() && compilations < MAX_COMPILATIONS) {
+            code = compiler.compile(body, this); //null when the body is too large for a method
+            if (code != null) {
+                compilations++;
+                return code.run(env);
+            }
+        }
+        return body.execute(env);
+    }
+
+    /**
+     * Called by the given compiled code when a value is not what it was compiled for: the body runs on the tree
+     * again from its next invocation, and is compiled again once it is hot again.
+     */
+    void deoptimize(CompiledBody compiled) {
+        if (code == compiled) {
+            code = null;
+            invocations = 0;
+        }
+    }
+
+    @Override
+    void replaceChild(ExecutableNode oldChild, ExecutableNode newChild) {
+        body = newChild;
+    }
+}
@@ -0,0 +1,38 @@
+package Node_Interpreter;
+
+import Cse_Machine.Environment;
+import Cse_Machine.RPALValue;
+
+/**
+ * A name, looked up in the current environment (RULE 1).
+ */
+final class IdentifierNode extends ExecutableNode {
+    private final String name;
+    private final int line;
+
+    IdentifierNode(String name, int line) {
+        this.name = name;
+        this.line = line;
+    }
+
+    @Override
+    RPALValue execute(Environment env) {
+        return lookup(env, name, line);
+    }
+
+    @Override
+    void compile(BytecodeCompiler compiler) {
+        compiler.loadEnvironment();
+        compiler.loadConstant(name, "java/lang/String");
+        compiler.code().pushInt(line);
+        compiler.code().invoke(ClassFileWriter.INVOKESTATIC, "Node_Interpreter/IdentifierNode", "lookup",
+                "(" + BytecodeCompiler.ENVIRONMENT + "Ljava/lang/String;I)" + BytecodeCompiler.VALUE);
+    }
+
+    static RPALValue lookup(Environment env, String name, int line) {
+        RPALValue value = env.lookup(name);
+        if (value == null)
+            NodeInterpreter.printEvaluationErrorToStdOut(line, "Undeclared identifier \"" + name + "\"");
+        return value;
+    }
+}
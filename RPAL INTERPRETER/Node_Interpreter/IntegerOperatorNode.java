@@ -0,0 +1,155 @@
+package Node_Interpreter;
+
+import Abstract_Syntax_Tree.ASTNodeType;
+import Cse_Machine.Environment;
+import Cse_Machine.IntegerValue;
+import Cse_Machine.RPALValue;
+import Cse_Machine.TruthValue;
+
+/**
+ * An arithmetic operator or comparison that has only been given integers. It checks for nothing else; given
+ * anything but two integers it replaces itself by a generic {@link OperatorNode}, which reports the error or
+ * compares the values.
+ */
+final class IntegerOperatorNode extends ExecutableNode {
+    private static final String INTEGER = "Cse_Machine/IntegerValue";
+
+    private final ASTNodeType operator;
+    private final int line;
+    private ExecutableNode left;
+    private ExecutableNode right;
+
+    IntegerOperatorNode(ASTNodeType operator, int line, ExecutableNode left, ExecutableNode right) {
+        this.operator = operator;
+        this.line = line;
+        this.left = adopt(left);
+        this.right = adopt(right);
+    }
+
+    /**
+     * @return true for the operators this node applies: the arithmetic ones, the comparisons, eq and ne
+     */
+    static boolean isIntegerOperator(ASTNodeType operator) {
+        return switch (operator) {
+            case PLUS, MINUS, MULT, DIV, EXP, LS, LE, GR, GE, EQ, NE -> true;
+            default -> false;
+        };
+    }
+
+    @Override
+    RPALValue execute(Environment env) {
+        RPALValue rand2 = right.execute(env);
+        RPALValue rand1 = left.execute(env);
+        if (!(rand1 instanceof IntegerValue) || !(rand2 instanceof IntegerValue)) {
+            replace(new OperatorNode(operator, line, left, right, false));
+            return OperatorNode.operate(operator, line, rand1, rand2);
+        }
+        return operate(operator, line, (IntegerValue) rand1, (IntegerValue) rand2);
+    }
+
+    // The operands are checked and the code deoptimizes on anything but integers; then '+', '-', '*' and the
+    // comparisons are applied in place
+    @Override
+    void compile(BytecodeCompiler compiler) {
+        ClassFileWriter code = compiler.code();
+        right.compile(compiler);
+        int rand2 = compiler.newTemporary();
+        code.storeLocal(rand2);
+        left.compile(compiler);
+        int rand1 = compiler.newTemporary();
+        code.storeLocal(rand1);
+        int generic = code.newLabel();
+        int end = code.newLabel();
+        for (int rand : new int[]{rand1, rand2}) {
+            code.loadLocal(rand);
+            code.type(ClassFileWriter.INSTANCEOF, INTEGER);
+            code.jump(ClassFileWriter.IFEQ, generic);
+        }
+        boolean inPlace = operator == ASTNodeType.PLUS || operator == ASTNodeType.MINUS
+                || operator == ASTNodeType.MULT || compareBranch(operator) != 0;
+        if (!inPlace) {
+            compiler.loadOperator(operator);
+            code.pushInt(line);
+        }
+        code.loadLocal(rand1);
+        code.type(ClassFileWriter.CHECKCAST, INTEGER);
+        code.loadLocal(rand2);
+        code.type(ClassFileWriter.CHECKCAST, INTEGER);
+
+        String binary = "(L" + INTEGER + ";)L" + INTEGER + ";";
+        switch (operator) {
+            case PLUS -> code.invoke(ClassFileWriter.INVOKEVIRTUAL, INTEGER, "add", binary);
+            case MINUS -> code.invoke(ClassFileWriter.INVOKEVIRTUAL, INTEGER, "subtract", binary);
+            case MULT -> code.invoke(ClassFileWriter.INVOKEVIRTUAL, INTEGER, "multiply", binary);
+            case LS, LE, GR, GE, EQ, NE -> {
+                code.invoke(ClassFileWriter.INVOKEVIRTUAL, INTEGER, "compareTo", "(L" + INTEGER + ";)I");
+                int holds = code.newLabel();
+                int compared = code.newLabel();
+                code.jump(compareBranch(operator), holds);
+                code.field(ClassFileWriter.GETSTATIC, "Cse_Machine/TruthValue", "FALSE", "LCse_Machine/TruthValue;");
+                code.jump(ClassFileWriter.GOTO, compared);
+                code.mark(holds);
+                code.field(ClassFileWriter.GETSTATIC, "Cse_Machine/TruthValue", "TRUE", "LCse_Machine/TruthValue;");
+                code.mark(compared);
+            }
+            default -> code.invoke(ClassFileWriter.INVOKESTATIC, "Node_Interpreter/IntegerOperatorNode", "operate",
+                    "(" + BytecodeCompiler.OPERATOR + "IL" + INTEGER + ";L" + INTEGER + ";)" + BytecodeCompiler.VALUE);
+        }
+        code.jump(ClassFileWriter.GOTO, end);
+
+        code.mark(generic);
+        compiler.deoptimize();
+        compiler.loadOperator(operator);
+        code.pushInt(line);
+        code.loadLocal(rand1);
+        code.loadLocal(rand2);
+        compiler.releaseTemporary();
+        compiler.releaseTemporary();
+        code.invoke(ClassFileWriter.INVOKESTATIC, "Node_Interpreter/OperatorNode", "operate",
+                BytecodeCompiler.BINARY_OPERATION);
+        code.mark(end);
+    }
+
+    // The branch taken on the result of compareTo when the comparison holds, or 0 for the other operators
+    private static int compareBranch(ASTNodeType operator) {
+        return switch (operator) {
+            case LS -> ClassFileWriter.IFLT;
+            case LE -> ClassFileWriter.IFLE;
+            case GR -> ClassFileWriter.IFGT;
+            case GE -> ClassFileWriter.IFGE;
+            case EQ -> ClassFileWriter.IFEQ;
+            case NE -> ClassFileWriter.IFNE;
+            default -> 0;
+        };
+    }
+
+    static RPALValue operate(ASTNodeType operator, int line, IntegerValue value1, IntegerValue value2) {
+        try {
+            return switch (operator) {
+                case PLUS -> value1.add(value2);
+                case MINUS -> value1.subtract(value2);
+                case MULT -> value1.multiply(value2);
+                case DIV -> value1.divide(value2);
+                case EXP -> value1.pow(value2);
+                case LS -> TruthValue.valueOf(value1.compareTo(value2) < 0);
+                case LE -> TruthValue.valueOf(value1.compareTo(value2) <= 0);
+                case GR -> TruthValue.valueOf(value1.compareTo(value2) > 0);
+                case GE -> TruthValue.valueOf(value1.compareTo(value2) >= 0);
+                case EQ -> TruthValue.valueOf(value1.compareTo(value2) == 0);
+                case NE -> TruthValue.valueOf(value1.compareTo(value2) != 0);
+                default -> throw new IllegalStateException("Not an integer operator: " + operator);
+            };
+        } catch (ArithmeticException ex) { //division by zero, or a power too large to hold
+            NodeInterpreter.printEvaluationErrorToStdOut(line, ex.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    void replaceChild(ExecutableNode oldChild, ExecutableNode newChild) {
+        if (left == oldChild)
+            left = newChild;
+        else if (right == oldChild)
+            right = newChild;
+    }
+}
@@ -0,0 +1,15 @@
+package Node_Interpreter;
+
+/**
+ * Thrown when the node tree meets something only the CSE machine evaluates the way the program relies on, such as
+ * Conc applied to the last argument of an application: the CSE machine then takes the next control element and
+ * value, whatever they are. Nothing a program does can be seen before it ends, since Print only records its
+ * argument and an error ends the program at once, so the program is simply run again on the CSE machine.
+ */
+class InterpreterFallbackException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    InterpreterFallbackException(String message) {
+        super(message);
+    }
+}
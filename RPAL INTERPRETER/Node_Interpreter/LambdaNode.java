@@ -0,0 +1,22 @@
+package Node_Interpreter;
+
+import Cse_Machine.Closure;
+import Cse_Machine.DeltaControlStructure;
+import Cse_Machine.Environment;
+import Cse_Machine.RPALValue;
+
+/**
+ * A lambda, which evaluates to a closure of its delta over the current environment (RULE 2).
+ */
+final class LambdaNode extends ExecutableNode {
+    private final DeltaControlStructure delta;
+
+    LambdaNode(DeltaControlStructure delta) {
+        this.delta = delta;
+    }
+
+    @Override
+    RPALValue execute(Environment env) {
+        return new Closure(delta, env);
+    }
+}
@@ -0,0 +1,146 @@
+package Node_Interpreter;
+
+import Abstract_Syntax_Tree.ASTNode;
+import Abstract_Syntax_Tree.ASTNodeType;
+import Cse_Machine.Beta_Condition_Eval;
+import Cse_Machine.DeltaControlStructure;
+import Cse_Machine.GammaSite;
+import Cse_Machine.Literal;
+import Cse_Machine.RecursiveBinding;
+import Cse_Machine.SaturatedCall;
+import Cse_Machine.SelfTailCall;
+import Cse_Machine.TupleArgumentCall;
+import Cse_Machine.VerifiedOperation;
+
+/**
+ * Turns a delta body, which lists its control elements in pre-order, back into a tree of nodes. Every element is
+ * followed by its operands, so the tree is read off the front of the array.
+ */
+final class NodeCompiler {
+    private final NodeInterpreter interpreter;
+    private ASTNode[] body;
+    private int next; // the element of the body to compile next
+
+    NodeCompiler(NodeInterpreter interpreter) {
+        this.interpreter = interpreter;
+    }
+
+    FunctionBodyNode compileBody(ASTNode[] deltaBody) {
+        return new FunctionBodyNode(compile(deltaBody, true), interpreter.getCompiler());
+    }
+
+    // A delta body, or an arm of a conditional, holds a single expression
+    private ExecutableNode compile(ASTNode[] elements, boolean tail) {
+        ASTNode[] enclosingBody = body;
+        int enclosingNext = next;
+        body = elements;
+        next = 0;
+        ExecutableNode node = compileNext(tail);
+        body = enclosingBody;
+        next = enclosingNext;
+        return node;
+    }
+
+    /**
+     * @param tail true if the expression's value is the value of the body it is in, so a function it applies last
+     *             can run in place of that body
+     */
+    private ExecutableNode compileNext(boolean tail) {
+        ASTNode node = body[next++];
+        int line = node.getLineNumberOfSourceFile();
+        switch (node.getTypeOfASTNode()) {
+            case IDENTIFIER:
+                return new IdentifierNode(node.getValueOfASTNode(), line);
+            case DELTA:
+                return new LambdaNode((DeltaControlStructure) node);
+            case RECBIND:
+                return new RecursiveBindingNode(((RecursiveBinding) node).getDelta());
+            case TAU:
+                return new TupleNode(compileOperands(countChildren(node)));
+            case BETA: {
+                Beta_Condition_Eval beta = (Beta_Condition_Eval) node;
+                ExecutableNode condition = compileNext(false);
+                ExecutableNode thenArm = compile(beta.getThenBody(), tail);
+                return new ConditionalNode(line, condition, thenArm, compile(beta.getElseBody(), tail));
+            }
+            case GAMMA:
+                return compileApplication(tail);
+            case CALL:
+                return compileSaturatedCall((SaturatedCall) node, tail);
+            case CALL_TUPLE: {
+                TupleArgumentCall call = (TupleArgumentCall) node;
+                ExecutableNode rator = compileNext(false);
+                return new TupleCallNode(interpreter, rator, compileOperands(call.getWidth()),
+                        call.getSite().getLineNumberOfSourceFile(), tail);
+            }
+            case LOOP: {
+                SelfTailCall call = (SelfTailCall) node;
+                DeltaControlStructure[] deltas = call.getDeltas();
+                int n = call.passesTupleElements() ? deltas[0].getBoundVars().size() : deltas.length;
+                return new SelfTailCallNode(interpreter, compileOperands(n), call.getFunctionName(), deltas,
+                        call.passesTupleElements(), line, tail);
+            }
+            case VERIFIED:
+                return compileOperator(((VerifiedOperation) node).getOperator(), line, true);
+            case PLUS, MINUS, MULT, DIV, EXP, LS, LE, GR, GE, EQ, NE, OR, AND, AUG, NOT, NEG:
+                return compileOperator(node.getTypeOfASTNode(), line, false);
+            case SHORT_CIRCUIT, PARALLEL_TAU: //only built for the CSE machine's own switches
+                throw new InterpreterFallbackException("No node for " + node.getTypeOfASTNode());
+            default: //the constants and predefined functions, whose values were built with the delta
+                return new ConstantNode(((Literal) node).getValue());
+        }
+    }
+
+    private ExecutableNode[] compileOperands(int n) {
+        ExecutableNode[] operands = new ExecutableNode[n];
+        for (int i = 0; i < n; i++)
+            operands[i] = compileNext(false);
+        return operands;
+    }
+
+    // The operands of a verified operator were shown to have the types it expects, so it starts out specialized
+    private ExecutableNode compileOperator(ASTNodeType operator, int line, boolean verified) {
+        if (operator == ASTNodeType.NOT || operator == ASTNodeType.NEG)
+            return new UnaryOperatorNode(operator, line, compileNext(false));
+        ExecutableNode left = compileNext(false);
+        ExecutableNode right = compileNext(false);
+        if (verified && IntegerOperatorNode.isIntegerOperator(operator))
+            return new IntegerOperatorNode(operator, line, left, right);
+        return new OperatorNode(operator, line, left, right, !verified);
+    }
+
+    // 'R a1 ... an' is n nested gammas, outermost first, followed by R, a1, ..., an: one application node applies
+    // R to all n arguments, which lets Conc take its second argument as it does on the CSE machine
+    private ExecutableNode compileApplication(boolean tail) {
+        int first = next - 1;
+        while (body[next].getTypeOfASTNode() == ASTNodeType.GAMMA)
+            next++;
+        int n = next - first;
+        int[] lines = new int[n];
+        for (int i = 0; i < n; i++) //the outermost gamma applies the function to the last argument
+            lines[i] = body[first + n - 1 - i].getLineNumberOfSourceFile();
+        ExecutableNode rator = compileNext(false);
+        return new ApplyNode(interpreter, rator, compileOperands(n), lines, lines, tail);
+    }
+
+    // The CSE machine reports a failure to bind the arguments of a saturated call at the call, and applies them
+    // one at a time at the gammas it replaced
+    private ExecutableNode compileSaturatedCall(SaturatedCall call, boolean tail) {
+        GammaSite[] sites = call.getSites();
+        int[] lines = new int[sites.length];
+        int[] bindingLines = new int[sites.length];
+        for (int i = 0; i < sites.length; i++) {
+            lines[i] = sites[i].getLineNumberOfSourceFile();
+            bindingLines[i] = call.getLineNumberOfSourceFile();
+        }
+        ExecutableNode rator = compileNext(false);
+        return new ApplyNode(interpreter, rator, compileOperands(sites.length), lines, bindingLines, tail);
+    }
+
+    private static int countChildren(ASTNode node) {
+        int numChildren = 0;
+        for (ASTNode child = node.getChildOfASTNode(); child != null; child = child.getSiblingOfASTNode())
+            numChildren++;
+        return numChildren;
+    }
+}
@@ -0,0 +1,289 @@
+package Node_Interpreter;
+
+import Abstract_Syntax_Tree.AST;
+import Cse_Machine.CSE_Machine;
+import Cse_Machine.Closure;
+import Cse_Machine.DeltaControlStructure;
+import Cse_Machine.DummyValue;
+import Cse_Machine.Environment;
+import Cse_Machine.EtaRecursiveFixedPoint;
+import Cse_Machine.IntegerValue;
+import Cse_Machine.PrimitiveFunction;
+import Cse_Machine.RPALValue;
+import Cse_Machine.StringValue;
+import Cse_Machine.TruthValue;
+import Cse_Machine.Tuple;
+
+/**
+ * Evaluates a program by executing trees of nodes instead of popping control elements off a stack.
+ * <p>
+ * Each delta body is compiled once, when a delta with its index is first applied, into a tree of
+ * {@link ExecutableNode}s: conditionals, applications, operators and tuples are nodes of their own, which
+ * evaluate their children and return a value. Operators and applications then specialize themselves to what they
+ * see (see {@link OperatorNode} and {@link ApplyNode}). Values and environments are the CSE machine's, evaluation
+ * order, results and error messages are the same, and so is what a program prints.
+ * </p>
+ * <p>
+ * Optionally, a body applied often enough is compiled further to bytecode (see {@link BytecodeCompiler}), and runs
+ * on the tree again whenever its compiled code meets a value it was not compiled for.
+ * </p>
+ * <p>
+ * A call not in tail position recurses on the Java stack, so the program runs on a thread with a large one. A
+ * program that needs more, or that does something only the CSE machine does the expected way (see
+ * {@link InterpreterFallbackException}), is run again on the CSE machine.
+ * </p>
+ */
+public class NodeInterpreter {
+
+    // Stack of the thread the node tree runs on; the JVM only commits what is used
+    private static final long STACK_SIZE = 1L << 30;
+    // Invocations after which a body is compiled to bytecode, unless the system property of this name says otherwise
+    public static final String COMPILE_THRESHOLD_PROPERTY = "rpal.jit.threshold";
+
+    private final AST ast;
+    private final DeltaControlStructure rootDelta;
+    private final FunctionBodyNode[] bodies; // indexed by DeltaControlStructure index, compiled when first needed
+    private final BytecodeCompiler compiler; // null unless hot bodies are compiled to bytecode
+    private boolean fellBack;
+    private Throwable failure; // thrown by the evaluating thread, to be rethrown on the caller's
+    public String evaluationResult;
+
+    public NodeInterpreter(AST ast) {
+        this(ast, false);
+    }
+
+    /**
+     * @param compileHotBodies true to compile each body to bytecode (see {@link BytecodeCompiler}) once it has been
+     *                         applied {@link CSE_Machine#HOT_DELTA_THRESHOLD} times, or as many as the system property
+     *                         {@link #COMPILE_THRESHOLD_PROPERTY} says
+     */
+    public NodeInterpreter(AST ast, boolean compileHotBodies) {
+        if (!ast.isASTStandardized())
+            throw new RuntimeException("AST has NOT been standardized!");
+        this.ast = ast;
+        rootDelta = ast.createDeltas();
+        bodies = new FunctionBodyNode[ast.getNumberOfDeltas()];
+        compiler = compileHotBodies
+                ? new BytecodeCompiler(Long.getLong(COMPILE_THRESHOLD_PROPERTY, CSE_Machine.HOT_DELTA_THRESHOLD))
+                : null;
+    }
+
+    static void printEvaluationErrorToStdOut(int sourceLineNumber, String message) {
+        System.out.println("Error :" + sourceLineNumber + ": " + message);
+        System.exit(1);
+    }
+
+    public void evaluateRPALProgram() {
+        Thread evaluator = new Thread(null, this::evaluateOnNodes, "RPAL node interpreter", STACK_SIZE);
+        evaluator.start();
+        try {
+            evaluator.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        if (failure instanceof RuntimeException)
+            throw (RuntimeException) failure;
+        if (failure instanceof Error)
+            throw (Error) failure;
+
+        if (fellBack) {
+            CSE_Machine machine = new CSE_Machine(ast);
+            machine.evaluateRPALProgram();
+            evaluationResult = machine.evaluationResult;
+        }
+    }
+
+    private void evaluateOnNodes() {
+        try {
+            bodyOf(rootDelta).invoke(Environment.create(null, 0)); //primitive environment
+        } catch (InterpreterFallbackException | StackOverflowError ex) {
+            fellBack = true;
+        } catch (RuntimeException | Error ex) {
+            failure = ex;
+        }
+    }
+
+    BytecodeCompiler getCompiler() {
+        return compiler;
+    }
+
+    FunctionBodyNode bodyOf(DeltaControlStructure delta) {
+        FunctionBodyNode body = bodies[delta.getIndex()];
+        if (body == null) {
+            body = new NodeCompiler(this).compileBody(delta.getBody());
+            bodies[delta.getIndex()] = body;
+        }
+        return body;
+    }
+
+    // Run the body, or in tail position leave that to the caller's FunctionBodyNode
+    RPALValue enter(FunctionBodyNode body, Environment env, boolean tail) {
+        return tail ? new TailCall(body, env) : body.invoke(env);
+    }
+
+    /**
+     * Apply the function to the arguments one at a time, as the gammas of 'R a1 ... an' would. Conc takes the
+     * argument after its own as well.
+     *
+     * @param lines the line of the application to each argument
+     */
+    RPALValue applyAll(int[] lines, RPALValue function, RPALValue[] arguments, boolean tail) {
+        for (int i = 0; i < arguments.length; i++) {
+            if (isConc(function)) {
+                if (i == arguments.length - 1)
+                    throw new InterpreterFallbackException("Conc applied to the last argument");
+                function = conc(lines[i], arguments[i], arguments[++i]);
+            } else
+                function = apply(lines[i], function, arguments[i], tail && i == arguments.length - 1);
+        }
+        return function;
+    }
+
+    //RULE 3
+    RPALValue apply(int line, RPALValue rator, RPALValue rand, boolean tail) {
+        if (rator instanceof Closure)
+            return call(line, (Closure) rator, rand, tail);
+        if (rator instanceof EtaRecursiveFixedPoint) {
+            //RULE 13
+            EtaRecursiveFixedPoint eta = (EtaRecursiveFixedPoint) rator;
+            if (eta.getUnrolledClosure() != null) //an ordinary call through the letrec cell
+                return call(line, eta.getUnrolledClosure(), rand, tail);
+            return apply(line, call(line, eta.getClosure(), eta, false), rand, tail);
+        }
+        if (rator instanceof Tuple)
+            return tupleSelection(line, (Tuple) rator, rand);
+
+        RPALValue result = null;
+        if (rator instanceof PrimitiveFunction)
+            result = evaluatePredefinedFunctionsOfRPAL(line, (PrimitiveFunction) rator, rand);
+        if (result == null)
+            printEvaluationErrorToStdOut(line, "Don't know how to evaluate \"" + rator.getPrintValue() + "\"");
+        return result;
+    }
+
+    private RPALValue call(int line, Closure closure, RPALValue rand, boolean tail) {
+        Environment newEnv = Environment.create(closure.getLinkedEnv(), closure.getDelta().getBoundVars().size());
+        bindArgument(line, closure.getDelta(), newEnv, rand);
+        return enter(bodyOf(closure.getDelta()), newEnv, tail);
+    }
+
+    // Bind the arguments, a1 first, for the deltas chain[0] to chain[n - 1] in one frame
+    Environment bindAll(int[] lines, DeltaControlStructure[] chain, RPALValue[] arguments, Environment parent) {
+        int slots = 0;
+        for (int i = 0; i < arguments.length; i++)
+            slots += chain[i].getBoundVars().size();
+        Environment newEnv = Environment.create(parent, slots);
+        for (int i = 0; i < arguments.length; i++)
+            bindArgument(lines[i], chain[i], newEnv, arguments[i]);
+        return newEnv;
+    }
+
+    void bindArgument(int line, DeltaControlStructure delta, Environment newEnv, RPALValue rand) {
+        //RULE 4
+        if (delta.getBoundVars().size() == 1) {
+            newEnv.addMapping(delta.getBoundVars().get(0), rand);
+            return;
+        }
+        //RULE 11
+        if (!(rand instanceof Tuple))
+            printEvaluationErrorToStdOut(line, "Expected a tuple; was given \"" + rand.getPrintValue() + "\"");
+        for (int i = 0; i < delta.getBoundVars().size(); i++)
+            newEnv.addMapping(delta.getBoundVars().get(i), ((Tuple) rand).get(i + 1)); //+ 1 coz tuple indexing starts at 1
+    }
+
+    // RULE 10
+    private RPALValue tupleSelection(int line, Tuple rator, RPALValue rand) {
+        if (!(rand instanceof IntegerValue))
+            printEvaluationErrorToStdOut(line, "Non-integer tuple selection with \"" + rand.getPrintValue() + "\"");
+
+        IntegerValue index = (IntegerValue) rand;
+        RPALValue result = index.isLong() && index.getLongValue() <= Integer.MAX_VALUE ? rator.get((int) index.getLongValue()) : null;
+        if (result == null)
+            printEvaluationErrorToStdOut(line, "Tuple selection index " + rand.getPrintValue() + " out of bounds");
+        return result;
+    }
+
+    /**
+     * @return the result, or null if the function cannot be applied on its own
+     */
+    private RPALValue evaluatePredefinedFunctionsOfRPAL(int line, PrimitiveFunction rator, RPALValue rand) {
+        switch (rator.getKind()) {
+            case Y_STAR -> {
+                //RULE 12
+                if (!(rand instanceof Closure))
+                    printEvaluationErrorToStdOut(line, "Expected a DeltaControlStructure; was given \"" + rand.getPrintValue() + "\"");
+                return new EtaRecursiveFixedPoint((Closure) rand);
+            }
+            case ISINTEGER -> {
+                return TruthValue.valueOf(rand instanceof IntegerValue);
+            }
+            case ISSTRING -> {
+                return TruthValue.valueOf(rand instanceof StringValue);
+            }
+            case ISDUMMY -> {
+                return TruthValue.valueOf(rand == DummyValue.DUMMY);
+            }
+            case ISFUNCTION -> {
+                return TruthValue.valueOf(rand instanceof Closure);
+            }
+            case ISTUPLE -> {
+                return TruthValue.valueOf(rand instanceof Tuple);
+            }
+            case ISTRUTHVALUE -> {
+                return TruthValue.valueOf(rand instanceof TruthValue);
+            }
+            case STEM -> {
+                return stringOf(line, rand).first();
+            }
+            case STERN -> {
+                return stringOf(line, rand).rest();
+            }
+            case CONC -> //the CSE machine takes whatever control element and value come next
+                    throw new InterpreterFallbackException("Conc applied on its own");
+            case PRINT -> {
+                String evaluationResult = rand.getPrintValue();
+                evaluationResult = evaluationResult.replace("\\t", "\t");
+                evaluationResult = evaluationResult.replace("\\n", "\n");
+                this.evaluationResult = evaluationResult;
+                return DummyValue.DUMMY;
+            }
+            case ITOS -> {
+                if (!(rand instanceof IntegerValue))
+                    printEvaluationErrorToStdOut(line, "Expected an integer; was given \"" + rand.getPrintValue() + "\"");
+                return new StringValue(rand.getPrintValue());
+            }
+            case ORDER -> {
+                if (!(rand instanceof Tuple))
+                    printEvaluationErrorToStdOut(line, "Expected a tuple; was given \"" + rand.getPrintValue() + "\"");
+                return IntegerValue.valueOf(((Tuple) rand).size());
+            }
+            case NULL -> {
+                if (!(rand instanceof Tuple))
+                    printEvaluationErrorToStdOut(line, "Expected a tuple; was given \"" + rand.getPrintValue() + "\"");
+                return TruthValue.valueOf(rand == Tuple.NIL);
+            }
+            default -> {
+                return null;
+            }
+        }
+    }
+
+    private static StringValue stringOf(int line, RPALValue rand) {
+        if (!(rand instanceof StringValue))
+            printEvaluationErrorToStdOut(line, "Expected a string; was given \"" + rand.getPrintValue() + "\"");
+        return (StringValue) rand;
+    }
+
+    private static boolean isConc(RPALValue function) {
+        return function instanceof PrimitiveFunction
+                && ((PrimitiveFunction) function).getKind() == PrimitiveFunction.Kind.CONC;
+    }
+
+    private static RPALValue conc(int line, RPALValue rand1, RPALValue rand2) {
+        if (!(rand1 instanceof StringValue) || !(rand2 instanceof StringValue))
+            printEvaluationErrorToStdOut(line, "Expected two strings; was given \"" + rand1.getPrintValue() + "\", \"" + rand2.getPrintValue() + "\"");
+
+        return ((StringValue) rand1).concat((StringValue) rand2);
+    }
+}
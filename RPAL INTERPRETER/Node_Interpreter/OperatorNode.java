@@ -0,0 +1,116 @@
+package Node_Interpreter;
+
+import Abstract_Syntax_Tree.ASTNodeType;
+import Cse_Machine.Environment;
+import Cse_Machine.IntegerValue;
+import Cse_Machine.RPALValue;
+import Cse_Machine.StringValue;
+import Cse_Machine.TruthValue;
+import Cse_Machine.Tuple;
+
+/**
+ * A binary operator applied to any values (RULE 6), checking them as the CSE machine does. The right operand is
+ * evaluated first.
+ * <p>
+ * A node compiled from the source starts out uninitialized: when its first operands are both integers and it has
+ * an integer form, it replaces itself by an {@link IntegerOperatorNode}. A node that was given anything else, or
+ * that an integer node fell back to, stays generic.
+ * </p>
+ */
+final class OperatorNode extends ExecutableNode {
+    private final ASTNodeType operator;
+    private final int line;
+    private ExecutableNode left;
+    private ExecutableNode right;
+    private boolean uninitialized;
+
+    /**
+     * @param specialize true to let the node replace itself after its first operands
+     */
+    OperatorNode(ASTNodeType operator, int line, ExecutableNode left, ExecutableNode right, boolean specialize) {
+        this.operator = operator;
+        this.line = line;
+        this.left = adopt(left);
+        this.right = adopt(right);
+        this.uninitialized = specialize && IntegerOperatorNode.isIntegerOperator(operator);
+    }
+
+    @Override
+    RPALValue execute(Environment env) {
+        RPALValue rand2 = right.execute(env);
+        RPALValue rand1 = left.execute(env);
+        if (uninitialized) {
+            uninitialized = false;
+            if (rand1 instanceof IntegerValue && rand2 instanceof IntegerValue) {
+                replace(new IntegerOperatorNode(operator, line, left, right));
+                return IntegerOperatorNode.operate(operator, line, (IntegerValue) rand1, (IntegerValue) rand2);
+            }
+        }
+        return operate(operator, line, rand1, rand2);
+    }
+
+    // Uninitialized or not, the compiled operator applies any values
+    @Override
+    void compile(BytecodeCompiler compiler) {
+        ClassFileWriter code = compiler.code();
+        right.compile(compiler);
+        int rand2 = compiler.newTemporary();
+        code.storeLocal(rand2);
+        compiler.loadOperator(operator);
+        code.pushInt(line);
+        left.compile(compiler);
+        code.loadLocal(rand2);
+        compiler.releaseTemporary();
+        code.invoke(ClassFileWriter.INVOKESTATIC, "Node_Interpreter/OperatorNode", "operate",
+                BytecodeCompiler.BINARY_OPERATION);
+    }
+
+    static RPALValue operate(ASTNodeType operator, int line, RPALValue rand1, RPALValue rand2) {
+        switch (operator) {
+            case EQ, NE -> {
+                return compare(operator, line, rand1, rand2);
+            }
+            case OR, AND -> {
+                if (!(rand1 instanceof TruthValue) || !(rand2 instanceof TruthValue))
+                    NodeInterpreter.printEvaluationErrorToStdOut(line, "Don't know how to " + operator + " \"" + rand1.getPrintValue() + "\", \"" + rand2.getPrintValue() + "\"");
+                if (operator == ASTNodeType.OR)
+                    return TruthValue.valueOf(rand1 == TruthValue.TRUE || rand2 == TruthValue.TRUE);
+                return TruthValue.valueOf(rand1 == TruthValue.TRUE && rand2 == TruthValue.TRUE);
+            }
+            case AUG -> {
+                if (!(rand1 instanceof Tuple))
+                    NodeInterpreter.printEvaluationErrorToStdOut(line, "Cannot augment a non-tuple \"" + rand1.getPrintValue() + "\"");
+                return ((Tuple) rand1).append(rand2);
+            }
+            default -> {
+                if (!(rand1 instanceof IntegerValue) || !(rand2 instanceof IntegerValue))
+                    NodeInterpreter.printEvaluationErrorToStdOut(line, "Expected two integers; was given \"" + rand1.getPrintValue() + "\", \"" + rand2.getPrintValue() + "\"");
+                return IntegerOperatorNode.operate(operator, line, (IntegerValue) rand1, (IntegerValue) rand2);
+            }
+        }
+    }
+
+    private static RPALValue compare(ASTNodeType operator, int line, RPALValue rand1, RPALValue rand2) {
+        if (rand1.getClass() != rand2.getClass())
+            NodeInterpreter.printEvaluationErrorToStdOut(line, "Cannot compare dissimilar types; was given \"" + rand1.getPrintValue() + "\", \"" + rand2.getPrintValue() + "\"");
+
+        boolean equal = false;
+        if (rand1 instanceof TruthValue)
+            equal = rand1 == rand2; //there is only one true and one false
+        else if (rand1 instanceof StringValue)
+            equal = ((StringValue) rand1).contentEquals((StringValue) rand2);
+        else if (rand1 instanceof IntegerValue)
+            equal = ((IntegerValue) rand1).compareTo((IntegerValue) rand2) == 0;
+        else
+            NodeInterpreter.printEvaluationErrorToStdOut(line, "Don't know how to " + operator + " \"" + rand1.getPrintValue() + "\", \"" + rand2.getPrintValue() + "\"");
+        return TruthValue.valueOf(operator == ASTNodeType.EQ ? equal : !equal);
+    }
+
+    @Override
+    void replaceChild(ExecutableNode oldChild, ExecutableNode newChild) {
+        if (left == oldChild)
+            left = newChild;
+        else if (right == oldChild)
+            right = newChild;
+    }
+}
@@ -0,0 +1,26 @@
+package Node_Interpreter;
+
+import Cse_Machine.Closure;
+import Cse_Machine.DeltaControlStructure;
+import Cse_Machine.Environment;
+import Cse_Machine.EtaRecursiveFixedPoint;
+import Cse_Machine.RPALValue;
+
+/**
+ * A 'rec' definition, which evaluates to the function's eta and letrec cell (RULES 2 and 12 in one step).
+ */
+final class RecursiveBindingNode extends ExecutableNode {
+    private final DeltaControlStructure delta;
+
+    /**
+     * @param delta the delta of 'lambda f. ...'
+     */
+    RecursiveBindingNode(DeltaControlStructure delta) {
+        this.delta = delta;
+    }
+
+    @Override
+    RPALValue execute(Environment env) {
+        return new EtaRecursiveFixedPoint(new Closure(delta, env));
+    }
+}
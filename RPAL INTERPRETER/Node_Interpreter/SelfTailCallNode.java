@@ -0,0 +1,75 @@
+package Node_Interpreter;
+
+import Cse_Machine.DeltaControlStructure;
+import Cse_Machine.Environment;
+import Cse_Machine.RPALValue;
+
+import java.util.Arrays;
+
+/**
+ * A 'rec' function calling itself in tail position with all its arguments: the arguments are bound in a fresh
+ * frame above the one binding the function's name, and the innermost delta's body runs in place of the caller's.
+ */
+final class SelfTailCallNode extends ExecutableNode {
+    private final NodeInterpreter interpreter;
+    private final ExecutableNode[] arguments; // a1 first, or the elements of the tuple passed
+    private final String functionName;
+    private final DeltaControlStructure[] deltas;
+    private final boolean tupleElements;
+    private final int[] lines;
+    private final boolean tail;
+    private FunctionBodyNode body; // compiled on the first call: the body contains this node
+
+    SelfTailCallNode(NodeInterpreter interpreter, ExecutableNode[] arguments, String functionName,
+                     DeltaControlStructure[] deltas, boolean tupleElements, int line, boolean tail) {
+        this.interpreter = interpreter;
+        this.arguments = arguments;
+        for (ExecutableNode argument : arguments)
+            adopt(argument);
+        this.functionName = functionName;
+        this.deltas = deltas;
+        this.tupleElements = tupleElements;
+        lines = new int[deltas.length];
+        Arrays.fill(lines, line);
+        this.tail = tail;
+    }
+
+    @Override
+    RPALValue execute(Environment env) {
+        RPALValue[] values = new RPALValue[arguments.length];
+        for (int i = values.length - 1; i >= 0; i--)
+            values[i] = arguments[i].execute(env);
+        return call(env, values);
+    }
+
+    RPALValue call(Environment env, RPALValue[] values) {
+        if (body == null)
+            body = interpreter.bodyOf(deltas[deltas.length - 1]);
+
+        Environment recEnv = env.frameBinding(functionName);
+        Environment newEnv;
+        if (tupleElements) {
+            newEnv = Environment.create(recEnv, values.length);
+            for (int i = 0; i < values.length; i++)
+                newEnv.addMapping(deltas[0].getBoundVars().get(i), values[i]);
+        } else
+            newEnv = interpreter.bindAll(lines, deltas, values, recEnv);
+        return interpreter.enter(body, newEnv, tail);
+    }
+
+    @Override
+    void compile(BytecodeCompiler compiler) {
+        int values = compiler.compileValues(arguments);
+        compiler.loadConstant(this, "Node_Interpreter/SelfTailCallNode");
+        compiler.loadEnvironment();
+        compiler.code().loadLocal(values);
+        compiler.releaseTemporary();
+        compiler.code().invoke(ClassFileWriter.INVOKEVIRTUAL, "Node_Interpreter/SelfTailCallNode", "call",
+                "(" + BytecodeCompiler.ENVIRONMENT + BytecodeCompiler.VALUES + ")" + BytecodeCompiler.VALUE);
+    }
+
+    @Override
+    void replaceChild(ExecutableNode oldChild, ExecutableNode newChild) {
+        replaceIn(arguments, oldChild, newChild);
+    }
+}
@@ -0,0 +1,32 @@
+package Node_Interpreter;
+
+import Cse_Machine.Environment;
+import Cse_Machine.RPALValue;
+
+/**
+ * What a node in tail position returns instead of running the body of the function it applies: the body and the
+ * environment to run it in. Only {@link FunctionBodyNode#invoke(Environment)} ever sees one, and it runs the body
+ * in place of the caller's.
+ */
+final class TailCall extends RPALValue {
+    private final FunctionBodyNode body;
+    private final Environment env;
+
+    TailCall(FunctionBodyNode body, Environment env) {
+        this.body = body;
+        this.env = env;
+    }
+
+    FunctionBodyNode getBody() {
+        return body;
+    }
+
+    Environment getEnv() {
+        return env;
+    }
+
+    @Override
+    public String getPrintValue() {
+        throw new IllegalStateException("A tail call is not a value");
+    }
+}
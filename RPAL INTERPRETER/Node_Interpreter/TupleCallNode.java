@@ -0,0 +1,70 @@
+package Node_Interpreter;
+
+import Cse_Machine.Closure;
+import Cse_Machine.DeltaControlStructure;
+import Cse_Machine.Environment;
+import Cse_Machine.RPALValue;
+import Cse_Machine.Tuple;
+
+/**
+ * 'f (e1, ..., en)', or 'let x1, ..., xn = e1, ..., en'. The elements are evaluated last first and then f. A
+ * closure with the parameters (x1, ..., xn) gets the elements bound straight into its frame; anything else gets
+ * the tuple.
+ */
+final class TupleCallNode extends ExecutableNode {
+    private final NodeInterpreter interpreter;
+    private ExecutableNode rator;
+    private final ExecutableNode[] elements;
+    private final int line;
+    private final boolean tail;
+
+    TupleCallNode(NodeInterpreter interpreter, ExecutableNode rator, ExecutableNode[] elements, int line,
+                  boolean tail) {
+        this.interpreter = interpreter;
+        this.rator = adopt(rator);
+        this.elements = elements;
+        for (ExecutableNode element : elements)
+            adopt(element);
+        this.line = line;
+        this.tail = tail;
+    }
+
+    @Override
+    RPALValue execute(Environment env) {
+        RPALValue[] values = new RPALValue[elements.length];
+        for (int i = values.length - 1; i >= 0; i--)
+            values[i] = elements[i].execute(env);
+        return apply(rator.execute(env), values);
+    }
+
+    RPALValue apply(RPALValue function, RPALValue[] values) {
+        Closure closure = CallNode.closureOf(function);
+        if (closure != null && closure.getDelta().getBoundVars().size() == values.length) {
+            DeltaControlStructure delta = closure.getDelta();
+            Environment newEnv = Environment.create(closure.getLinkedEnv(), values.length);
+            for (int i = 0; i < values.length; i++)
+                newEnv.addMapping(delta.getBoundVars().get(i), values[i]);
+            return interpreter.enter(interpreter.bodyOf(delta), newEnv, tail);
+        }
+        return interpreter.apply(line, function, Tuple.of(values), tail);
+    }
+
+    @Override
+    void compile(BytecodeCompiler compiler) {
+        int values = compiler.compileValues(elements);
+        compiler.loadConstant(this, "Node_Interpreter/TupleCallNode");
+        rator.compile(compiler);
+        compiler.code().loadLocal(values);
+        compiler.releaseTemporary();
+        compiler.code().invoke(ClassFileWriter.INVOKEVIRTUAL, "Node_Interpreter/TupleCallNode", "apply",
+                "(" + BytecodeCompiler.VALUE + BytecodeCompiler.VALUES + ")" + BytecodeCompiler.VALUE);
+    }
+
+    @Override
+    void replaceChild(ExecutableNode oldChild, ExecutableNode newChild) {
+        if (rator == oldChild)
+            rator = newChild;
+        else
+            replaceIn(elements, oldChild, newChild);
+    }
+}
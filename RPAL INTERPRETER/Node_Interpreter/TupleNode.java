@@ -0,0 +1,44 @@
+package Node_Interpreter;
+
+import Cse_Machine.Environment;
+import Cse_Machine.RPALValue;
+import Cse_Machine.Tuple;
+
+/**
+ * A tuple written out, '(e1, ..., en)', or nil (RULE 9). Its elements are evaluated last first, as on the CSE
+ * machine.
+ */
+final class TupleNode extends ExecutableNode {
+    private final ExecutableNode[] elements;
+
+    TupleNode(ExecutableNode[] elements) {
+        this.elements = elements;
+        for (ExecutableNode element : elements)
+            adopt(element);
+    }
+
+    @Override
+    RPALValue execute(Environment env) {
+        RPALValue[] values = new RPALValue[elements.length];
+        for (int i = elements.length - 1; i >= 0; i--)
+            values[i] = elements[i].execute(env);
+        return tupleOf(values);
+    }
+
+    @Override
+    void compile(BytecodeCompiler compiler) {
+        compiler.code().loadLocal(compiler.compileValues(elements));
+        compiler.releaseTemporary();
+        compiler.code().invoke(ClassFileWriter.INVOKESTATIC, "Node_Interpreter/TupleNode", "tupleOf",
+                "(" + BytecodeCompiler.VALUES + ")" + BytecodeCompiler.VALUE);
+    }
+
+    static RPALValue tupleOf(RPALValue[] values) {
+        return Tuple.of(values);
+    }
+
+    @Override
+    void replaceChild(ExecutableNode oldChild, ExecutableNode newChild) {
+        replaceIn(elements, oldChild, newChild);
+    }
+}
@@ -0,0 +1,52 @@
+package Node_Interpreter;
+
+import Abstract_Syntax_Tree.ASTNodeType;
+import Cse_Machine.Environment;
+import Cse_Machine.IntegerValue;
+import Cse_Machine.RPALValue;
+import Cse_Machine.TruthValue;
+
+/**
+ * 'not' or 'neg' (RULE 7).
+ */
+final class UnaryOperatorNode extends ExecutableNode {
+    private final ASTNodeType operator;
+    private final int line;
+    private ExecutableNode operand;
+
+    UnaryOperatorNode(ASTNodeType operator, int line, ExecutableNode operand) {
+        this.operator = operator;
+        this.line = line;
+        this.operand = adopt(operand);
+    }
+
+    @Override
+    RPALValue execute(Environment env) {
+        return operate(operator, line, operand.execute(env));
+    }
+
+    @Override
+    void compile(BytecodeCompiler compiler) {
+        compiler.loadOperator(operator);
+        compiler.code().pushInt(line);
+        operand.compile(compiler);
+        compiler.code().invoke(ClassFileWriter.INVOKESTATIC, "Node_Interpreter/UnaryOperatorNode", "operate",
+                "(" + BytecodeCompiler.OPERATOR + "I" + BytecodeCompiler.VALUE + ")" + BytecodeCompiler.VALUE);
+    }
+
+    static RPALValue operate(ASTNodeType operator, int line, RPALValue rand) {
+        if (operator == ASTNodeType.NOT) {
+            if (!(rand instanceof TruthValue))
+                NodeInterpreter.printEvaluationErrorToStdOut(line, "Expecting a truthvalue; was given \"" + rand.getPrintValue() + "\"");
+            return TruthValue.valueOf(rand == TruthValue.FALSE);
+        }
+        if (!(rand instanceof IntegerValue))
+            NodeInterpreter.printEvaluationErrorToStdOut(line, "Expecting a truthvalue; was given \"" + rand.getPrintValue() + "\"");
+        return ((IntegerValue) rand).negate();
+    }
+
+    @Override
+    void replaceChild(ExecutableNode oldChild, ExecutableNode newChild) {
+        operand = newChild;
+    }
+}
@@ -0,0 +1,96 @@
+#!/bin/bash
+# ==============================================================================
+# Regression tests for the RPAL interpreter
+# ==============================================================================
+#
+# Runs every program in Rpal_Test_Programs and Tests/programs under the default
+# evaluation and under each optional switch, and compares what it prints with
+# Tests/expected/<program>.out. Every mode must print exactly the same output.
+#
+#   bash Tests/run_tests.sh            - all modes
+#   bash Tests/run_tests.sh -sc -aot   - only the modes named
+#
+# Besides the output:
+#   -warn     compares the warnings on stderr with Tests/expected/<program>.warn
+#             (no file: no warnings)
+#   -aot      builds a jar of each program and runs that
+#   -jit      runs each program twice: compiling the bodies that get hot, and
+#             compiling every body on its second call, so the compiled code of
+#             every program is checked as well
+#   Tests/stats_checks.txt lists lines that '-stats' must print for a program
+#
+# Needs a JDK 17 'javac' and 'java' on the PATH; classes are built in a
+# temporary directory.
+# ==============================================================================
+
+cd "$(dirname "$0")/.." || exit 1
+
+ALL_MODES=("" "-sc" "-memo" "-parallel" "-sc -memo -parallel" "-warn" "-aot" "-nodes" "-nodes -jit")
+if [ $# -gt 0 ]; then MODES=("$@"); else MODES=("${ALL_MODES[@]}"); fi
+
+# Forked components only run in parallel with more than one pool thread, which a small machine may not have
+JAVA_OPTS="-Djava.util.concurrent.ForkJoinPool.common.parallelism=4"
+TIMEOUT=120
+
+CLASSES=$(mktemp -d)
+trap 'rm -rf "$CLASSES"' EXIT
+javac -encoding UTF-8 -d "$CLASSES" $(find . -name '*.java' -not -path './Tests/*') || exit 1
+
+failures=0
+runs=0
+
+fail() {
+    echo "FAIL [$1] $2"
+    failures=$((failures + 1))
+}
+
+for mode in "${MODES[@]}"; do
+    for program in Rpal_Test_Programs/*.rpal Tests/programs/*.rpal; do
+        name=$(basename "$program" .rpal)
+        expected="Tests/expected/$name.out"
+        if [ ! -f "$expected" ]; then
+            fail "$mode" "$name: no $expected"
+            continue
+        fi
+        runs=$((runs + 1))
+
+        case "$mode" in
+            -aot)
+                jar="$CLASSES/$name.jar"
+                java -cp "$CLASSES" myrpal -aot "$program" -o "$jar" || { fail "$mode" "$name: jar not built"; continue; }
+                actual=$(timeout $TIMEOUT java $JAVA_OPTS -jar "$jar" 2>/dev/null)
+                rm -f "$jar" ;;
+            -warn)
+                warnings=$(timeout $TIMEOUT java $JAVA_OPTS -cp "$CLASSES" myrpal -warn "$program" 2>&1 >/dev/null)
+                expectedWarnings=""
+                [ -f "Tests/expected/$name.warn" ] && expectedWarnings=$(cat "Tests/expected/$name.warn")
+                [ "$warnings" == "$expectedWarnings" ] || fail "$mode" "$name: warnings differ:
+$warnings"
+                actual=$(timeout $TIMEOUT java $JAVA_OPTS -cp "$CLASSES" myrpal -warn "$program" 2>/dev/null) ;;
+            *-jit*)
+                eager=$(timeout $TIMEOUT java $JAVA_OPTS -Drpal.jit.threshold=2 -cp "$CLASSES" myrpal $mode "$program" 2>/dev/null)
+                [ "$eager" == "$(cat "$expected")" ] || fail "$mode, threshold 2" "$name: printed
+$eager"
+                actual=$(timeout $TIMEOUT java $JAVA_OPTS -cp "$CLASSES" myrpal $mode "$program" 2>/dev/null) ;;
+            *)
+                actual=$(timeout $TIMEOUT java $JAVA_OPTS -cp "$CLASSES" myrpal $mode "$program" 2>/dev/null) ;;
+        esac
+
+        [ "$actual" == "$(cat "$expected")" ] || fail "$mode" "$name: printed
+$actual"
+    done
+done
+
+# <program>|<switches>|<line -stats must print>
+if [ -f Tests/stats_checks.txt ]; then
+    while IFS='|' read -r name switches line; do
+        [ -z "$name" ] || [ "${name:0:1}" == "#" ] && continue
+        runs=$((runs + 1))
+        program=$(ls Rpal_Test_Programs/"$name".rpal Tests/programs/"$name".rpal 2>/dev/null | head -1)
+        stats=$(timeout $TIMEOUT java $JAVA_OPTS -cp "$CLASSES" myrpal $switches -stats "$program" 2>&1 >/dev/null)
+        grep -qxF -- "$line" <<< "$stats" || fail "$switches -stats" "$name: no line \"$line\""
+    done < Tests/stats_checks.txt
+fi
+
+echo "$runs runs, $failures failures"
+[ $failures -eq 0 ]
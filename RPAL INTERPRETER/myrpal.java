@@ -2,43 +2,165 @@ import Lex_Analyzer.Scanner;
 import Parser.Parser;
 import Abstract_Syntax_Tree.AST;
 import Cse_Machine.CSE_Machine;
+import Node_Interpreter.NodeInterpreter;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class myrpal {
+    private static final String USAGE = "Usage: java myrpal [-ast] [-stats] [-warn] [-sc] [-memo] [-parallel] "
+            + "<input_file.rpal> / Usage: java myrpal [-warn] -nodes [-jit] <input_file.rpal>"
+            + " / Usage: java myrpal -aot [-fuel <steps>] <input_file.rpal> -o <output.jar>"
+            + " / Usage: java -jar <output.jar> [-stats] [-warn] [-sc] [-memo] [-parallel] [-nodes [-jit]]";
+
+    // Steps the partial evaluator may spend in all on the closed expressions of a program compiled with -aot
+    private static final long DEFAULT_FUEL = 1000000;
+
+    // Resource holding the standardized tree of a program bundled with -aot
+    private static final String EMBEDDED_PROGRAM = "program.st";
+
     public static void main(String[] args) {
         boolean printASTOnly = false;
-        String inputFileName;
+        boolean printStatistics = false;
+        boolean printWarnings = false;
+        boolean compileAheadOfTime = false;
+        boolean shortCircuitEvaluation = false;
+        boolean memoization = false;
+        boolean parallelEvaluation = false;
+        boolean nodeEvaluation = false;
+        boolean compileHotBodies = false;
+        long fuel = DEFAULT_FUEL;
+        boolean fuelGiven = false;
+        String inputFileName = null;
+        String outputFileName = null;
 
-        // Handle the optional -ast switch
-        if (args.length == 2 && args[0].equals("-ast")) {
-            printASTOnly = true;
-            inputFileName = args[1];
+        // Handle the optional switches; the one remaining argument is the RPAL file
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-ast" -> printASTOnly = true;
+                case "-stats" -> printStatistics = true;
+                case "-warn" -> printWarnings = true;
+                case "-aot" -> compileAheadOfTime = true;
+                case "-sc" -> shortCircuitEvaluation = true;
+                case "-memo" -> memoization = true;
+                case "-parallel" -> parallelEvaluation = true;
+                case "-nodes" -> nodeEvaluation = true;
+                case "-jit" -> compileHotBodies = true;
+                case "-o" -> outputFileName = ++i < args.length ? args[i] : null;
+                case "-fuel" -> {
+                    try {
+                        fuel = Long.parseLong(++i < args.length ? args[i] : "");
+                        fuelGiven = true;
+                    } catch (NumberFormatException ex) {
+                        System.out.println(USAGE);
+                        return;
+                    }
+                }
+                default -> {
+                    // Bad usage
+                    if (args[i].startsWith("-") || inputFileName != null) {
+                        System.out.println(USAGE);
+                        return;
+                    }
+                    inputFileName = args[i];
+                }
+            }
         }
-        // Normal mode: just one argument (the RPAL file)
-        else if (args.length == 1) {
-            inputFileName = args[0];
+
+        // The evaluation switches take effect when the jar built with -aot is run, not when it is built
+        if (compileAheadOfTime ? printASTOnly || printStatistics || printWarnings || shortCircuitEvaluation ||
+                memoization || parallelEvaluation || nodeEvaluation || compileHotBodies : fuelGiven) {
+            System.out.println(USAGE);
+            return;
+        }
+        // The node tree has neither the CSE machine's profile nor its optional evaluation strategies
+        if (nodeEvaluation && (printStatistics || shortCircuitEvaluation || memoization || parallelEvaluation)) {
+            System.out.println(USAGE);
+            return;
         }
-        // Bad usage
-        else {
-            System.out.println("Usage: java myrpal <input_file.rpal> / Usage: java myrpal -ast <input_file.rpal>");
+        // Bytecode is compiled from the node tree's hot bodies
+        if (compileHotBodies && !nodeEvaluation) {
+            System.out.println(USAGE);
             return;
         }
 
-        // Build the AST
-        AST astRoot = createAST(inputFileName);
-        if (astRoot == null) return;
+        // A jar built with -aot carries its program, so it runs without an input file
+        AST astRoot;
+        if (inputFileName == null && !compileAheadOfTime && !printASTOnly) {
+            astRoot = loadEmbeddedProgram();
+            if (astRoot == null) {
+                System.out.println(USAGE);
+                return;
+            }
+        } else {
+            if (inputFileName == null || compileAheadOfTime != (outputFileName != null)) {
+                System.out.println(USAGE);
+                return;
+            }
 
-        // If -ast was specified, print the AST and exit
-        if (printASTOnly) {
-            astRoot.printAST();   // <— your new tree‐printing method
+            // Build the AST
+            astRoot = createAST(inputFileName);
+            if (astRoot == null) return;
+
+            // If -ast was specified, print the AST and exit
+            if (printASTOnly) {
+                astRoot.printAST();   // <— your new tree‐printing method
+                return;
+            }
+
+            astRoot.Standardize();
+            astRoot.optimize();
+            if (compileAheadOfTime) {
+                // The closed computations are done once here and carried in the jar as their results
+                astRoot.partiallyEvaluate(fuel);
+                writeProgramJar(astRoot, outputFileName);
+                return;
+            }
+        }
+
+        // Otherwise evaluate the standardized tree
+        astRoot.setShortCircuitEvaluation(shortCircuitEvaluation);
+        astRoot.setMemoization(memoization);
+        astRoot.setParallelEvaluation(parallelEvaluation);
+        if (nodeEvaluation) {
+            NodeInterpreter interpreter = new NodeInterpreter(astRoot, compileHotBodies);
+            if (printWarnings)
+                printTypeWarnings(astRoot);
+            interpreter.evaluateRPALProgram();
+            System.out.println(interpreter.evaluationResult);
             return;
         }
+        CSE_Machine machine = new CSE_Machine(astRoot);
+        if (printWarnings)
+            printTypeWarnings(astRoot);
+        machine.evaluateRPALProgram();
+        System.out.println(machine.evaluationResult);
+
+        // Profile goes to stderr so the program's own output is unchanged
+        if (printStatistics)
+            machine.printStatistics(System.err);
+    }
 
-        // Otherwise standardize and evaluate
-        astRoot.Standardize();
-        String result = interpretAST(astRoot);
-        System.out.println(result);
+    // Like the profile, warnings about certain type errors go to stderr. For a program loaded from a jar they are
+    // only known once the deltas are built
+    private static void printTypeWarnings(AST ast) {
+        for (String warning : ast.getTypeWarnings())
+            System.err.println(warning);
     }
 
     private static AST createAST(String filePath) {
@@ -52,9 +174,66 @@ public class myrpal {
         }
     }
 
-    private static String interpretAST(AST ast) {
-        CSE_Machine machine = new CSE_Machine(ast);
-        machine.evaluateRPALProgram();
-        return machine.evaluationResult;
+    private static AST loadEmbeddedProgram() {
+        try (InputStream in = myrpal.class.getResourceAsStream("/" + EMBEDDED_PROGRAM)) {
+            if (in == null)
+                return null;
+            return AST.readStandardizedTree(new DataInputStream(in));
+        } catch (IOException ex) {
+            System.err.println("ERROR: Cannot read embedded program \"" + EMBEDDED_PROGRAM + "\"");
+            return null;
+        }
+    }
+
+    /**
+     * Writes a runnable jar holding the interpreter's own classes and the standardized tree of the program, so
+     * 'java -jar' skips scanning, parsing and standardizing at startup.
+     */
+    private static void writeProgramJar(AST ast, String jarFileName) {
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().put(Attributes.Name.MAIN_CLASS, "myrpal");
+
+        try (JarOutputStream jar = new JarOutputStream(Files.newOutputStream(Paths.get(jarFileName)), manifest)) {
+            copyInterpreterClasses(jar);
+
+            jar.putNextEntry(new JarEntry(EMBEDDED_PROGRAM));
+            DataOutputStream out = new DataOutputStream(jar);
+            ast.writeStandardizedTree(out);
+            out.flush();
+            jar.closeEntry();
+        } catch (IOException | URISyntaxException ex) {
+            System.err.println("ERROR: Cannot write file \"" + jarFileName + "\"");
+        }
+    }
+
+    // The interpreter is either a class directory or a jar (when bundling from inside a bundled program)
+    private static void copyInterpreterClasses(JarOutputStream jar) throws IOException, URISyntaxException {
+        Path codeSource = Paths.get(myrpal.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        if (Files.isDirectory(codeSource)) {
+            List<Path> classFiles;
+            try (Stream<Path> files = Files.walk(codeSource)) {
+                classFiles = files.filter(f -> f.toString().endsWith(".class")).collect(Collectors.toList());
+            }
+            for (Path classFile : classFiles) {
+                jar.putNextEntry(new JarEntry(codeSource.relativize(classFile).toString().replace('\\', '/')));
+                Files.copy(classFile, jar);
+                jar.closeEntry();
+            }
+        } else {
+            try (JarFile source = new JarFile(codeSource.toFile())) {
+                Enumeration<JarEntry> entries = source.entries();
+                while (entries.hasMoreElements()) {
+                    JarEntry entry = entries.nextElement();
+                    if (!entry.getName().endsWith(".class"))
+                        continue;
+                    jar.putNextEntry(new JarEntry(entry.getName()));
+                    try (InputStream in = source.getInputStream(entry)) {
+                        in.transferTo(jar);
+                    }
+                    jar.closeEntry();
+                }
+            }
+        }
     }
 }